@@ -1,16 +1,34 @@
 package application;
 
+import diagnostic.Diagnostic;
 import lexer.Lexer;
-import lexer.token.Token;
+import lexer.ParallelLexer;
+import lexer.ScannerCore;
+import lexer.token.TokenBuffer;
 import lexer.token.TokenFormatter;
-import parser.RecognizerParser;
+import parser.ast.ParallelParser;
 import parser.ast.ParserAst;
 import parser.ast.Ast;
-import parser.ast.JsonAstPrinter;
+import parser.ast.JsonAstWriter;
+import semantic.Resolver;
+import interpreter.Interpreter;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 
 import java.nio.file.Files;
@@ -18,58 +36,213 @@ import java.nio.file.Path;
 import java.util.List;
 
 public class Application {
+    // u --run režimu stdout pripada programu
+    private static PrintStream log = System.out;
+
     public static void main(String[] args) throws Exception {
 
-        if (args.length != 1) {
-            System.err.println("Usage: java application.Application <input-file-or-resource>");
+        boolean stream = false;
+        boolean lint = false;
+        boolean run = false;
+        Path cacheDir = null;
+        long cacheMax = CompileCache.DEFAULT_MAX_BYTES;
+        List<String> inputs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--stream")) stream = true;
+            else if (arg.equals("--lint")) lint = true;
+            else if (arg.equals("--run")) run = true;
+            else if (arg.startsWith("--cache=")) cacheDir = Path.of(arg.substring("--cache=".length()));
+            else if (arg.startsWith("--cache-max-mb=")) cacheMax = Long.parseLong(arg.substring("--cache-max-mb=".length())) << 20;
+            else inputs.add(arg);
+        }
+
+        if (lint ? inputs.isEmpty() : inputs.size() != 1) {
+            System.err.println("Usage: java application.Application [--stream | --cache=<dir> [--cache-max-mb=<n>]] <input-file-or-resource>");
+            System.err.println("       java application.Application --lint <input>...");
+            System.err.println("       java application.Application --run <input>");
             System.err.println("Primer: java application.Application test.txt  (u src/main/resources)");
+            System.err.println("  --stream  parser vuče tokene direktno iz lexera, bez tabele tokena");
+            System.err.println("  --lint    prijavljuje sve leksičke, pa sintaksne, pa semantičke greške u svim ulazima");
+            System.err.println("  --cache   tokeni i AST istog ulaza se čitaju iz keša u <dir> (podrazumevano do 256 MB)");
+            System.err.println("  --run     izvršava program od battle(); stdin i stdout pripadaju programu");
             System.exit(1);
         }
 
-        String inputName = args[0];
+        if (lint) {
+            System.exit(lint(inputs));
+        }
 
+        if (run) {
+            log = System.err;
+            System.exit(run(inputs.get(0)));
+        }
 
-        String source = readFromResourcesOrFs(inputName);
+        String inputName = inputs.get(0);
 
+        Ast.Program program;
+        if (stream) {
+            try (ScannerCore source = openFromResourcesOrFs(inputName)) {
+                Lexer lexer = new Lexer(source);
+                ParserAst parser = new ParserAst(lexer.stream(), lexer.symbols());
+                program = parser.parseProgram();
+            }
+            System.out.println("AST OK");
+        } else {
+            // pogodak u kešu preskače lexer i parser; ispis je isti kao bez keša
+            CompileCache cache = cacheDir == null ? null : new CompileCache(cacheDir, cacheMax);
+            CompileCache.Entry cached = null;
+            ByteBuffer bytes = null;
+            String key = null;
+            if (cache != null) {
+                bytes = readFromResourcesOrFs(inputName);
+                key = cache.key(bytes);
+                cached = cache.get(key);
+            }
 
-        Lexer lexer = new Lexer(source);
-        List<Token> tokens = lexer.scanTokens();
-        System.out.println("LEXING OK");
-        System.out.println(TokenFormatter.formatList(tokens));
+            TokenBuffer tokens;
+            if (cached != null) {
+                tokens = cached.tokens();
+            } else if (cache != null) {
+                tokens = new ParallelLexer(ScannerCore.of(bytes)).scanBuffer();
+            } else {
+                try (ScannerCore source = openFromResourcesOrFs(inputName)) {
+                    ParallelLexer lexer = new ParallelLexer(source);
+                    tokens = lexer.scanBuffer();
+                }
+            }
+            System.out.println("LEXING OK");
+            printTokens(tokens);
 
 
-        RecognizerParser recognizer = new RecognizerParser(tokens);
-        recognizer.parseProgram();
-        System.out.println("SYNTAX OK");
+            if (cached != null) {
+                program = cached.program();
+            } else {
+                // jedan prolaz: sintaksa se proverava dok se gradi AST
+                ParallelParser parser = new ParallelParser(tokens);
+                program = parser.parseProgram();
+                if (cache != null) cache.put(key, tokens, program);
+            }
+            System.out.println("SYNTAX OK");
+            System.out.println("AST OK");
+        }
 
 
-        ParserAst parser = new ParserAst(tokens);
-        Ast.Program program = parser.parseProgram();
-        System.out.println("AST OK");
+        // JSON se piše dok se obilazi AST, bez celog teksta u memoriji; prvo u privremeni fajl,
+        // pa na stdout tek ceo, da greška usred pisanja ne ostavi pola dokumenta
+        Path json = Files.createTempFile("ast", ".json");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(json), 1 << 16)) {
+                new JsonAstWriter().pretty().write(program, out);
+            }
+            System.out.println("JSON AST:");
+            System.out.flush();
+            Files.copy(json, System.out);
+            System.out.println();
+        } finally {
+            Files.deleteIfExists(json);
+        }
+    }
+
+    // greške imena i tipova idu na stderr, pre izvršavanja
+    private static int run(String name) throws Exception {
+        TokenBuffer tokens;
+        try (ScannerCore source = openFromResourcesOrFs(name)) {
+            tokens = new ParallelLexer(source).scanBuffer();
+        }
+        Ast.Program program = new ParallelParser(tokens).parseProgram();
+        Resolver resolver = new Resolver();
+        resolver.resolve(program);
+        for (Diagnostic d : resolver.diagnostics()) {
+            System.err.println(name + ": " + d);
+        }
+        if (!resolver.diagnostics().isEmpty()) return 1;
 
+        Reader in = new InputStreamReader(System.in, Charset.defaultCharset());
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 1 << 16);
+        new Interpreter(in, out).run(program);
+        return 0;
+    }
 
-        JsonAstPrinter printer = new JsonAstPrinter();
-        String json = printer.print(program);
+    // tabela tokena red po red, bez cele tabele u memoriji
+    private static void printTokens(TokenBuffer tokens) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 1 << 16);
+        TokenFormatter.writeTo(out, tokens);
+        out.flush();
+        System.out.println();
+    }
 
-        System.out.println("JSON AST:");
-        System.out.println(json);
+    private static int lint(List<String> inputs) throws Exception {
+        int total = 0;
+        for (String name : inputs) {
+            Lexer lexer;
+            TokenBuffer tokens;
+            try (ScannerCore source = openFromResourcesOrFs(name)) {
+                lexer = new Lexer(source).recovering();
+                tokens = lexer.scanBuffer();
+            }
+            List<Diagnostic> diagnostics = lexer.diagnostics();
+            // sintaksa se proverava samo nad ispravnim tokenima, da ERROR tokeni ne prave lažne greške
+            if (diagnostics.isEmpty()) {
+                ParserAst parser = new ParserAst(tokens).recognizeOnly().recovering();
+                parser.parseProgram();
+                diagnostics = parser.diagnostics();
+            }
+            // imena i tipovi tek nad sintaksno ispravnim programom
+            if (diagnostics.isEmpty()) {
+                Resolver resolver = new Resolver();
+                resolver.resolve(new ParserAst(tokens).parseProgram());
+                diagnostics = resolver.diagnostics();
+            }
+            for (Diagnostic d : diagnostics) {
+                System.out.println(name + ": " + d);
+            }
+            total += diagnostics.size();
+        }
+        System.out.println(total == 0 ? "SYNTAX OK" : "Grešaka: " + total);
+        return total == 0 ? 0 : 1;
+    }
+
+    // ceo ulaz kao UTF-8 bajtovi, za ključ keša i lexer; veliki fajl se mapira
+    private static ByteBuffer readFromResourcesOrFs(String name) throws Exception {
+
+        String normalized = name.startsWith("/") ? name : "/" + name;
+        try (InputStream is = Application.class.getResourceAsStream(normalized)) {
+            if (is != null) {
+                log.println("Učitavam sa classpath-a: " + normalized);
+                return ByteBuffer.wrap(is.readAllBytes());
+            }
+        }
+
+
+        Path p = Path.of(name);
+        if (Files.exists(p)) {
+            log.println("Učitavam sa fajl sistema: " + p.toAbsolutePath());
+            if (Files.size(p) < ScannerCore.MAP_THRESHOLD) return ByteBuffer.wrap(Files.readAllBytes(p));
+            try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+                return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+        }
+
+
+        throw new java.nio.file.NoSuchFileException(
+                "Nije pronađeno ni kao resource (" + normalized + ") ni na fajl sistemu (" + p.toAbsolutePath() + ")");
     }
 
-    private static String readFromResourcesOrFs(String name) throws Exception {
+    private static ScannerCore openFromResourcesOrFs(String name) throws Exception {
 
         String normalized = name.startsWith("/") ? name : "/" + name;
         try (InputStream is = Application.class.getResourceAsStream(normalized)) {
             if (is != null) {
-                System.out.println("Učitavam sa classpath-a: " + normalized);
-                return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+                log.println("Učitavam sa classpath-a: " + normalized);
+                return ScannerCore.of(is.readAllBytes());
             }
         }
 
 
         Path p = Path.of(name);
         if (Files.exists(p)) {
-            System.out.println("Učitavam sa fajl sistema: " + p.toAbsolutePath());
-            return Files.readString(p, StandardCharsets.UTF_8);
+            log.println("Učitavam sa fajl sistema: " + p.toAbsolutePath());
+            return ScannerCore.open(p);
         }
 
 
@@ -0,0 +1,151 @@
+package application;
+
+import lexer.token.TokenBuffer;
+import parser.ast.Ast;
+import parser.ast.BinaryAstReader;
+import parser.ast.BinaryAstWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+// keš na disku: SHA-256 izvora i STAMP -> tokeni i binarni AST, jedan fajl po ulazu
+// upis ide u privremeni fajl pa atomski rename, pa paralelni procesi vide ceo fajl ili nikakav;
+// pogodak pomera vreme izmene fajla, a posle upisa se brišu najstariji dok ukupna veličina ne padne ispod granice
+// greške keša se ne prijavljuju: neispravan ili nestao fajl je promašaj, neuspeo upis se preskače
+public final class CompileCache {
+    // menja se sa svakom promenom izlaza leksera ili parsera, da stari unosi postanu promašaji
+    public static final String STAMP = "bg-1/ast-" + BinaryAstWriter.VERSION;
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    private static final int MAGIC = 0x42474343; // "BGCC"
+    private static final String SUFFIX = ".bgc";
+    // privremeni fajlovi procesa koji je pao se brišu posle ovoliko
+    private static final long STALE_TMP_MILLIS = 60 * 60 * 1000L;
+
+    public record Entry(TokenBuffer tokens, Ast.Program program) {}
+
+    private final Path dir;
+    private final long maxBytes;
+
+    public CompileCache(Path dir) {
+        this(dir, DEFAULT_MAX_BYTES);
+    }
+
+    public CompileCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    public String key(ByteBuffer source) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(STAMP.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(source.duplicate());
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // null za promašaj
+    public Entry get(String key) {
+        Path file = dir.resolve(key + SUFFIX);
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buf.getInt() != MAGIC) return null;
+            TokenBuffer tokens = TokenBuffer.readFrom(buf);
+            int length = buf.getInt();
+            if (buf.remaining() != length) return null;
+            Ast.Program program = new BinaryAstReader(buf.slice()).program();
+            // stavke se čitaju odmah, da neispravan fajl bude promašaj, a ne greška usred ispisa
+            program.items.forEach(it -> { });
+            touch(file);
+            return new Entry(tokens, program);
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    public void put(String key, TokenBuffer tokens, Ast.Program program) {
+        Path tmp = null;
+        try {
+            Files.createDirectories(dir);
+            ByteArrayOutputStream ast = new ByteArrayOutputStream();
+            new BinaryAstWriter().write(program, ast);
+
+            tmp = Files.createTempFile(dir, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                tokens.writeTo(out);
+                out.writeInt(ast.size());
+                ast.writeTo(out);
+            }
+            // isti ključ znači isti sadržaj, pa nije bitno čiji upis ostane
+            Files.move(tmp, dir.resolve(key + SUFFIX), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            tmp = null;
+            evict();
+        } catch (IOException | RuntimeException ex) {
+            // keš je samo ubrzanje
+        } finally {
+            if (tmp != null) {
+                try { Files.deleteIfExists(tmp); } catch (IOException ignored) { }
+            }
+        }
+    }
+
+    private record Item(Path path, long size, long time) {}
+
+    // LRU po vremenu izmene; fajl koji je drugi proces u međuvremenu obrisao se preskače
+    private void evict() throws IOException {
+        List<Item> items = new ArrayList<>();
+        long total = 0;
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                try {
+                    long time = Files.getLastModifiedTime(p).toMillis();
+                    if (name.endsWith(".tmp")) {
+                        if (now - time > STALE_TMP_MILLIS) Files.deleteIfExists(p);
+                    } else if (name.endsWith(SUFFIX)) {
+                        long size = Files.size(p);
+                        items.add(new Item(p, size, time));
+                        total += size;
+                    }
+                } catch (NoSuchFileException ignored) {
+                }
+            }
+        }
+        if (total <= maxBytes) return;
+        items.sort(Comparator.comparingLong(Item::time));
+        for (Item it : items) {
+            if (total <= maxBytes) break;
+            Files.deleteIfExists(it.path);
+            total -= it.size;
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package diagnostic;
+
+// lagan zapis greške: kod, pozicija i dužina; bez izuzetka i stack trace-a
+public final class Diagnostic {
+
+    public enum Code {
+        UNEXPECTED_CHAR("LEXER", "Unexpected character"),
+        AT_TYPE_NO_IDENT("LEXER", "Expected identifier after '@'"),
+        AT_TYPE_UNCLOSED("LEXER", "Expected closing '@' in @type@"),
+        INT_LITERAL_RANGE("LEXER", "Int literal out of range"),
+        INT_LITERAL_LETTER("LEXER", "Error: Character in int literal"),
+        NUMBER_LITERAL_DIGITS("LEXER", "Expected digits in number literal"),
+        NUMBER_LITERAL_LETTER("LEXER", "Error: Character in number literal"),
+        DOUBLE_LITERAL_RANGE("LEXER", "Double literal out of range"),
+        UNTERMINATED_STRING("LEXER", "Unterminated string literal"),
+        UNTERMINATED_CHAR("LEXER", "Unterminated char literal"),
+        CHAR_LITERAL_UNCLOSED("LEXER", "Expected closing ' in char literal"),
+        // tekst konkretne sintaksne greške je u Diagnostic.message
+        SYNTAX("PARSER", "Syntax error"),
+        // Resolver; tekst sa imenom i tipovima je u Diagnostic.message
+        UNDECLARED("SEMANTIC", "Undeclared name"),
+        REDECLARED("SEMANTIC", "Name already declared"),
+        TYPE_MISMATCH("SEMANTIC", "Type mismatch");
+
+        public final String phase;
+        public final String message;
+
+        Code(String phase, String message) {
+            this.phase = phase;
+            this.message = message;
+        }
+    }
+
+    public final Code code;
+    public final String message;
+    public final int line, col;
+    // offset je -1 kada pozicija u izvoru nije poznata (greške parsera nad Token-ima)
+    public final int offset, length;
+
+    public Diagnostic(Code code, int line, int col, int offset, int length) {
+        this(code, code.message, line, col, offset, length);
+    }
+
+    public Diagnostic(Code code, String message, int line, int col, int offset, int length) {
+        this.code = code;
+        this.message = message;
+        this.line = line;
+        this.col = col;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public String toString() {
+        return code.phase + " > " + message + " at " + line + ":" + col;
+    }
+}
@@ -0,0 +1,508 @@
+package interpreter;
+
+import lexer.token.Token;
+import lexer.token.TokenType;
+import parser.ast.Ast;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+// izvršava Ast.Program koji je prošao Resolver bez grešaka: globalne promenljive redom, pa battle()
+//
+// okvir ima tri niza iste dužine, po jedan za svaku vrstu vrednosti: brojElixira i slovoKartice u long[],
+// doubleElixir u double[], imeKartice i nizovi u Object[]; slot je onaj koji je dodelio Resolver
+// izraz se računa metodom svog tipa (evalLong, evalDouble, evalRef), pa aritmetika ne pravi objekte
+// ispisiKarticu piše argumente jedan za drugim pa novi red; ucitajKarticu čita po jednu reč ulaza u svaki argument
+// oba idu kroz bafere; izlaz se prazni pre svakog čitanja sa ulaza i na kraju
+//
+// izvršavanje je rekurzivno po AST-u, pa se dubina broji u nivoima: telo funkcije košta svoj FuncDef.depth i jedan
+// za sam poziv; granica ne zavisi od -Xss jer program radi na svojoj niti sa stekom od STACK_PER_LEVEL po nivou
+// (izmereno najviše ~570 bajtova po nivou sa -Xint, za poređenje doubleElixir vrednosti)
+public final class Interpreter {
+
+    private static final int MAX_LEVELS = 1 << 18;
+    private static final long STACK_PER_LEVEL = 1024;
+
+    private static final class Frame {
+        final long[] longs;
+        final double[] doubles;
+        final Object[] refs;
+
+        Frame(int size) {
+            longs = new long[size];
+            doubles = new double[size];
+            refs = new Object[size];
+        }
+    }
+
+    private final Reader in;
+    private final Writer out;
+    private final char[] inBuf = new char[1 << 13];
+    private int inPos, inLen;
+    private final StringBuilder word = new StringBuilder();
+
+    private Frame globals;
+    // vrednost poslednjeg krajBorbe i povratni tip funkcije koja se izvršava
+    private long retLong;
+    private double retDouble;
+    private Object retRef;
+    private Ast.Type returnType;
+    // zbir nivoa aktivnih poziva
+    private int levels;
+    // niz i indeks elementa koje je našao locate()
+    private Object target;
+    private int targetAt;
+
+    public Interpreter(Reader in, Writer out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    public void run(Ast.Program p) throws IOException {
+        Ast.FuncDef battle = null;
+        for (Ast.TopItem it : p.items) {
+            if (it instanceof Ast.FuncDef f && f.name.type == TokenType.BATTLE) battle = f;
+        }
+        if (battle == null) throw new IllegalStateException("Program nema battle()");
+
+        Ast.FuncDef main = battle;
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                run(p, main);
+            } catch (Throwable ex) {
+                failure[0] = ex;
+            }
+        }, "interpreter", MAX_LEVELS * STACK_PER_LEVEL);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("prekinuto čekanje na interpreter");
+        }
+        if (failure[0] instanceof IOException ex) throw ex;
+        if (failure[0] instanceof RuntimeException ex) throw ex;
+        if (failure[0] instanceof Error ex) throw ex;
+    }
+
+    private void run(Ast.Program p, Ast.FuncDef battle) throws IOException {
+        globals = new Frame(p.frameSize);
+        returnType = battle.returnType;
+        levels = 0;
+        try {
+            enter(p.depth);
+            for (Ast.TopItem it : p.items) {
+                if (it instanceof Ast.TopVarDecl v) exec(v.decl, globals);
+                else if (it instanceof Ast.TopStmt s && s.stmt != null) exec(s.stmt, globals);
+            }
+            levels = 0;
+            enter(battle.depth + 1);
+            exec(battle.body, new Frame(battle.frameSize));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            out.flush();
+        }
+    }
+
+    private void enter(int n) {
+        levels += n;
+        if (levels > MAX_LEVELS) throw new RuntimeException("RUNTIME ERROR – prekoračena dubina poziva");
+    }
+
+    // NAREDBE; true kada je izvršen krajBorbe
+
+    private boolean exec(List<Ast.Stmt> stmts, Frame f) {
+        for (int i = 0, n = stmts.size(); i < n; i++) {
+            if (exec(stmts.get(i), f)) return true;
+        }
+        return false;
+    }
+
+    private boolean exec(Ast.Stmt s, Frame f) {
+        if (s instanceof Ast.Stmt.Assign a) {
+            store(a.lvalue, a.left, f);
+            return false;
+        }
+        if (s instanceof Ast.Stmt.CallStmt c) {
+            call(c.call, f);
+            return false;
+        }
+        if (s instanceof Ast.Stmt.BeginIf i) {
+            if (truth(i.ifArm.cond, f)) return exec(i.ifArm.block, f);
+            for (Ast.Stmt.BeginIf.Arm a : i.elderArms) {
+                if (truth(a.cond, f)) return exec(a.block, f);
+            }
+            return i.elseBlock != null && exec(i.elseBlock, f);
+        }
+        if (s instanceof Ast.Stmt.BeginCycle c) {
+            if (c.init != null) exec(c.init, f);
+            while (c.cond == null || truth(c.cond, f)) {
+                if (exec(c.body, f)) return true;
+                if (c.step != null) exec(c.step, f);
+            }
+            return false;
+        }
+        if (s instanceof Ast.Stmt.VarDecl v) {
+            declare(v, f);
+            return false;
+        }
+        if (s instanceof Ast.Stmt.Return r) {
+            if (r.expr != null) result(r.expr, f);
+            return true;
+        }
+        throw new IllegalStateException("Nepoznata naredba: " + s.getClass().getSimpleName());
+    }
+
+    private void declare(Ast.Stmt.VarDecl v, Frame f) {
+        Ast.Type t = v.type;
+        for (int slot : v.slots) {
+            if (!v.dims.isEmpty()) {
+                long[] dims = new long[v.dims.size()];
+                for (int k = 0; k < dims.length; k++) dims[k] = evalLong(v.dims.get(k), f);
+                f.refs[slot] = alloc(v.names.get(0), t, dims, 0);
+            } else if (v.init != null) {
+                assign(f, slot, t, v.init, f);
+            } else {
+                // slot je možda ranije pripadao promenljivoj zatvorenog bloka
+                f.longs[slot] = 0;
+                f.doubles[slot] = 0;
+                f.refs[slot] = t.rank == 0 && t.kind == Ast.Type.Kind.STRING ? "" : null;
+            }
+        }
+    }
+
+    // niz po dimenzijama; dimenzije koje nisu zadate ostaju null
+    private Object alloc(Token name, Ast.Type t, long[] dims, int level) {
+        long n = dims[level];
+        if (n < 0 || n > Integer.MAX_VALUE) throw error(name, "neispravna dužina niza " + n);
+        if (level == t.rank - 1) {
+            return switch (t.kind) {
+                case INT, CHAR -> new long[(int) n];
+                case DOUBLE -> new double[(int) n];
+                default -> {
+                    Object[] a = new Object[(int) n];
+                    if (t.kind == Ast.Type.Kind.STRING) Arrays.fill(a, "");
+                    yield a;
+                }
+            };
+        }
+        Object[] a = new Object[(int) n];
+        if (level + 1 < dims.length) {
+            for (int i = 0; i < a.length; i++) a[i] = alloc(name, t, dims, level + 1);
+        }
+        return a;
+    }
+
+    // skalar u slot okvira t; vrednost se računa u okviru f
+    private void assign(Frame t, int slot, Ast.Type type, Ast.Expr value, Frame f) {
+        if (type.rank != 0 || type.kind == Ast.Type.Kind.STRING) t.refs[slot] = evalRef(value, f);
+        else if (type.kind == Ast.Type.Kind.DOUBLE) t.doubles[slot] = evalDouble(value, f);
+        else t.longs[slot] = narrow(type, evalLong(value, f));
+    }
+
+    private void store(Ast.Stmt.LValue lv, Ast.Expr value, Frame f) {
+        Frame frame = lv.depth == 0 ? f : globals;
+        Ast.Type t = lv.type;
+        if (lv.indices.isEmpty()) {
+            assign(frame, lv.slot, t, value, f);
+        } else if (t.rank != 0 || t.kind == Ast.Type.Kind.STRING) {
+            Object v = evalRef(value, f);
+            locate(lv.name, frame, lv.slot, lv.indices, f);
+            ((Object[]) target)[targetAt] = v;
+        } else if (t.kind == Ast.Type.Kind.DOUBLE) {
+            double v = evalDouble(value, f);
+            locate(lv.name, frame, lv.slot, lv.indices, f);
+            ((double[]) target)[targetAt] = v;
+        } else {
+            long v = narrow(t, evalLong(value, f));
+            locate(lv.name, frame, lv.slot, lv.indices, f);
+            ((long[]) target)[targetAt] = v;
+        }
+    }
+
+    private void result(Ast.Expr e, Frame f) {
+        Ast.Type t = returnType;
+        if (t.rank != 0 || t.kind == Ast.Type.Kind.STRING) retRef = evalRef(e, f);
+        else if (t.kind == Ast.Type.Kind.DOUBLE) retDouble = evalDouble(e, f);
+        else retLong = narrow(t, evalLong(e, f));
+    }
+
+    private static long narrow(Ast.Type t, long v) {
+        return t.kind == Ast.Type.Kind.CHAR ? (char) v : v;
+    }
+
+    // element niza: postavlja target i targetAt; indeksi se računaju pre nego što se polja postave
+    private void locate(Token name, Frame frame, int slot, List<Ast.Expr> indices, Frame f) {
+        Object arr = frame.refs[slot];
+        int last = indices.size() - 1;
+        for (int k = 0; ; k++) {
+            if (arr == null) throw error(name, "niz '" + name.lexeme + "' nije alociran");
+            long i = evalLong(indices.get(k), f);
+            int len = arr instanceof long[] a ? a.length : arr instanceof double[] a ? a.length : ((Object[]) arr).length;
+            if (i < 0 || i >= len) throw error(name, "indeks " + i + " je van niza dužine " + len);
+            if (k == last) {
+                target = arr;
+                targetAt = (int) i;
+                return;
+            }
+            arr = ((Object[]) arr)[(int) i];
+        }
+    }
+
+    // POZIVI
+
+    private void call(Ast.Expr.Call c, Frame f) {
+        TokenType builtin = c.callee.type;
+        if (builtin == TokenType.ISPISI_KARTICU) {
+            print(c.args, f);
+            return;
+        }
+        if (builtin == TokenType.UCITAJ_KARTICU) {
+            read(c, f);
+            return;
+        }
+
+        Ast.FuncDef fn = c.target;
+        Frame callee = new Frame(fn.frameSize);
+        List<Ast.Param> params = fn.params;
+        for (int i = 0, n = params.size(); i < n; i++) assign(callee, i, params.get(i).type, c.args.get(i), f);
+        Ast.Type saved = returnType;
+        returnType = fn.returnType;
+        enter(fn.depth + 1);
+        // bez krajBorbe bi pozivalac pročitao vrednost prethodnog poziva
+        if (!exec(fn.body, callee) && fn.returnType.kind != Ast.Type.Kind.VOID) {
+            throw error(c.callee, "'" + fn.name.lexeme + "' se završila bez krajBorbe sa vrednošću");
+        }
+        levels -= fn.depth + 1;
+        returnType = saved;
+    }
+
+    private void print(List<Ast.Expr> args, Frame f) {
+        try {
+            for (Ast.Expr a : args) out.write(text(a, f));
+            out.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void read(Ast.Expr.Call c, Frame f) {
+        for (Ast.Expr a : c.args) {
+            String w = word();
+            if (w == null) throw error(c.callee, "nema više ulaza");
+            Frame frame;
+            int slot;
+            Token name;
+            List<Ast.Expr> indices;
+            if (a instanceof Ast.Expr.Ident i) {
+                frame = i.depth == 0 ? f : globals;
+                slot = i.slot;
+                name = i.name;
+                indices = List.of();
+            } else {
+                Ast.Expr.Index x = (Ast.Expr.Index) a;
+                frame = x.depth == 0 ? f : globals;
+                slot = x.slot;
+                name = x.name;
+                indices = x.indices;
+            }
+
+            Ast.Type t = a.type;
+            if (t.kind == Ast.Type.Kind.STRING) {
+                if (indices.isEmpty()) frame.refs[slot] = w;
+                else { locate(name, frame, slot, indices, f); ((Object[]) target)[targetAt] = w; }
+            } else if (t.kind == Ast.Type.Kind.DOUBLE) {
+                double v = parseDouble(c.callee, w);
+                if (indices.isEmpty()) frame.doubles[slot] = v;
+                else { locate(name, frame, slot, indices, f); ((double[]) target)[targetAt] = v; }
+            } else {
+                long v = t.kind == Ast.Type.Kind.CHAR ? w.charAt(0) : parseLong(c.callee, w);
+                if (indices.isEmpty()) frame.longs[slot] = v;
+                else { locate(name, frame, slot, indices, f); ((long[]) target)[targetAt] = v; }
+            }
+        }
+    }
+
+    private long parseLong(Token at, String w) {
+        try {
+            return Long.parseLong(w);
+        } catch (NumberFormatException ex) {
+            throw error(at, "'" + w + "' nije brojElixira");
+        }
+    }
+
+    private double parseDouble(Token at, String w) {
+        try {
+            return Double.parseDouble(w);
+        } catch (NumberFormatException ex) {
+            throw error(at, "'" + w + "' nije doubleElixir");
+        }
+    }
+
+    // sledeća reč ulaza do belina; null na kraju ulaza
+    private String word() {
+        word.setLength(0);
+        try {
+            while (true) {
+                if (inPos == inLen) {
+                    out.flush();
+                    inLen = Math.max(in.read(inBuf), 0);
+                    inPos = 0;
+                    if (inLen == 0) return word.isEmpty() ? null : word.toString();
+                }
+                char ch = inBuf[inPos++];
+                if (!Character.isWhitespace(ch)) word.append(ch);
+                else if (!word.isEmpty()) return word.toString();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // IZRAZI
+
+    private boolean truth(Ast.Expr e, Frame f) {
+        return e.type.kind == Ast.Type.Kind.DOUBLE ? evalDouble(e, f) != 0 : evalLong(e, f) != 0;
+    }
+
+    // brojElixira i slovoKartice
+    private long evalLong(Ast.Expr e, Frame f) {
+        if (e instanceof Ast.Expr.Ident i) return (i.depth == 0 ? f : globals).longs[i.slot];
+        if (e instanceof Ast.Expr.LiteralInt l) return l.value;
+        if (e instanceof Ast.Expr.Binary b) return binaryLong(b, f);
+        if (e instanceof Ast.Expr.Grouping g) return evalLong(g.inner, f);
+        if (e instanceof Ast.Expr.Index x) {
+            locate(x.name, x.depth == 0 ? f : globals, x.slot, x.indices, f);
+            return ((long[]) target)[targetAt];
+        }
+        if (e instanceof Ast.Expr.Call c) {
+            call(c, f);
+            return retLong;
+        }
+        if (e instanceof Ast.Expr.Unary u) {
+            return switch (u.op.type) {
+                case LOG_NOT -> truth(u.expr, f) ? 0 : 1;
+                case SUB -> -evalLong(u.expr, f);
+                default -> evalLong(u.expr, f);
+            };
+        }
+        if (e instanceof Ast.Expr.LiteralChar c) return c.codePoint;
+        if (e instanceof Ast.Expr.Ternary t) return truth(t.condition, f) ? evalLong(t.thenExpr, f) : evalLong(t.elseExpr, f);
+        throw new IllegalStateException("Nije ceo broj: " + e.getClass().getSimpleName());
+    }
+
+    private long binaryLong(Ast.Expr.Binary b, Frame f) {
+        switch (b.op.type) {
+            case ADD: return evalLong(b.left, f) + evalLong(b.right, f);
+            case SUB: return evalLong(b.left, f) - evalLong(b.right, f);
+            case MULTIPLY: return evalLong(b.left, f) * evalLong(b.right, f);
+            case DIVIDE:
+            case PERCENT: {
+                long l = evalLong(b.left, f);
+                long r = evalLong(b.right, f);
+                if (r == 0) throw error(b.op, "deljenje nulom");
+                return b.op.type == TokenType.DIVIDE ? l / r : l % r;
+            }
+            case LOG_AND: return truth(b.left, f) && truth(b.right, f) ? 1 : 0;
+            case LOG_OR: return truth(b.left, f) || truth(b.right, f) ? 1 : 0;
+            default: return compare(b, f) ? 1 : 0;
+        }
+    }
+
+    private boolean compare(Ast.Expr.Binary b, Frame f) {
+        Ast.Type.Kind l = b.left.type.kind, r = b.right.type.kind;
+        if (l == Ast.Type.Kind.STRING || b.left.type.rank != 0) {
+            boolean eq = Objects.equals(evalRef(b.left, f), evalRef(b.right, f));
+            return b.op.type == TokenType.EQ ? eq : !eq;
+        }
+        if (l == Ast.Type.Kind.DOUBLE || r == Ast.Type.Kind.DOUBLE) {
+            double x = evalDouble(b.left, f), y = evalDouble(b.right, f);
+            return switch (b.op.type) {
+                case LT -> x < y;
+                case LE -> x <= y;
+                case GT -> x > y;
+                case GE -> x >= y;
+                case EQ -> x == y;
+                default -> x != y;
+            };
+        }
+        long x = evalLong(b.left, f), y = evalLong(b.right, f);
+        return switch (b.op.type) {
+            case LT -> x < y;
+            case LE -> x <= y;
+            case GT -> x > y;
+            case GE -> x >= y;
+            case EQ -> x == y;
+            default -> x != y;
+        };
+    }
+
+    // doubleElixir; celobrojni izraz se proširuje
+    private double evalDouble(Ast.Expr e, Frame f) {
+        if (e.type.kind != Ast.Type.Kind.DOUBLE) return evalLong(e, f);
+        if (e instanceof Ast.Expr.Ident i) return (i.depth == 0 ? f : globals).doubles[i.slot];
+        if (e instanceof Ast.Expr.LiteralDouble l) return l.value;
+        if (e instanceof Ast.Expr.Binary b) {
+            double l = evalDouble(b.left, f), r = evalDouble(b.right, f);
+            return switch (b.op.type) {
+                case ADD -> l + r;
+                case SUB -> l - r;
+                case MULTIPLY -> l * r;
+                default -> l / r;
+            };
+        }
+        if (e instanceof Ast.Expr.Grouping g) return evalDouble(g.inner, f);
+        if (e instanceof Ast.Expr.Index x) {
+            locate(x.name, x.depth == 0 ? f : globals, x.slot, x.indices, f);
+            return ((double[]) target)[targetAt];
+        }
+        if (e instanceof Ast.Expr.Call c) {
+            call(c, f);
+            return retDouble;
+        }
+        if (e instanceof Ast.Expr.Unary u) return u.op.type == TokenType.SUB ? -evalDouble(u.expr, f) : evalDouble(u.expr, f);
+        if (e instanceof Ast.Expr.Ternary t) return truth(t.condition, f) ? evalDouble(t.thenExpr, f) : evalDouble(t.elseExpr, f);
+        throw new IllegalStateException("Nije doubleElixir: " + e.getClass().getSimpleName());
+    }
+
+    // imeKartice i nizovi
+    private Object evalRef(Ast.Expr e, Frame f) {
+        if (e instanceof Ast.Expr.Ident i) return (i.depth == 0 ? f : globals).refs[i.slot];
+        if (e instanceof Ast.Expr.LiteralString l) return l.value;
+        if (e instanceof Ast.Expr.Binary b) return text(b.left, f).concat(text(b.right, f));
+        if (e instanceof Ast.Expr.Grouping g) return evalRef(g.inner, f);
+        if (e instanceof Ast.Expr.Index x) {
+            locate(x.name, x.depth == 0 ? f : globals, x.slot, x.indices, f);
+            return ((Object[]) target)[targetAt];
+        }
+        if (e instanceof Ast.Expr.Call c) {
+            call(c, f);
+            return retRef;
+        }
+        if (e instanceof Ast.Expr.Ternary t) return truth(t.condition, f) ? evalRef(t.thenExpr, f) : evalRef(t.elseExpr, f);
+        throw new IllegalStateException("Nije imeKartice: " + e.getClass().getSimpleName());
+    }
+
+    // skalar kao tekst, za ispis i spajanje imeKartice
+    private String text(Ast.Expr e, Frame f) {
+        return switch (e.type.kind) {
+            case INT -> Long.toString(evalLong(e, f));
+            case CHAR -> String.valueOf((char) evalLong(e, f));
+            case DOUBLE -> Double.toString(evalDouble(e, f));
+            default -> String.valueOf(evalRef(e, f));
+        };
+    }
+
+    private static RuntimeException error(Token t, String msg) {
+        return new RuntimeException("RUNTIME ERROR kod '" + t.lexeme + "' – " + msg +
+                " (linija " + t.line + ", kol " + t.colStart + ")");
+    }
+}
@@ -0,0 +1,51 @@
+package lexer;
+
+// klase ASCII znakova u jednoj tabeli; za znakove >= 128 pada se na Unicode proveru
+public final class CharClass {
+    public static final byte DIGIT = 1;
+    public static final byte LETTER = 2;
+    public static final byte IDENT_START = 4;
+    public static final byte IDENT_PART = 8;
+    public static final byte BLANK = 16;
+    public static final byte PUNCT = 32;
+
+    private static final byte[] TABLE = new byte[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) TABLE[c] = DIGIT | IDENT_PART;
+        for (char c = 'a'; c <= 'z'; c++) TABLE[c] = LETTER | IDENT_START | IDENT_PART;
+        for (char c = 'A'; c <= 'Z'; c++) TABLE[c] = LETTER | IDENT_START | IDENT_PART;
+        TABLE['_'] = IDENT_START | IDENT_PART;
+        TABLE[' '] = BLANK;
+        TABLE['\t'] = BLANK;
+        TABLE['\r'] = BLANK;
+        for (char c : "()[]#${}?:,;=+-*/%<>&|!\"'@".toCharArray()) TABLE[c] = PUNCT;
+    }
+
+    private CharClass() {}
+
+    public static boolean isDigit(char c) {
+        return c < 128 ? (TABLE[c] & DIGIT) != 0 : Character.isDigit(c);
+    }
+
+    public static boolean isLetter(char c) {
+        return c < 128 ? (TABLE[c] & LETTER) != 0 : Character.isAlphabetic(c);
+    }
+
+    public static boolean isIdentStart(char c) {
+        return c < 128 ? (TABLE[c] & IDENT_START) != 0 : Character.isLetter(c);
+    }
+
+    public static boolean isIdentPart(char c) {
+        return c < 128 ? (TABLE[c] & IDENT_PART) != 0 : Character.isLetter(c) || Character.isDigit(c);
+    }
+
+    // razmak, tab i \r; novi red je token
+    public static boolean isBlank(char c) {
+        return c < 128 && (TABLE[c] & BLANK) != 0;
+    }
+
+    public static boolean isPunct(char c) {
+        return c < 128 && (TABLE[c] & PUNCT) != 0;
+    }
+}
@@ -0,0 +1,56 @@
+package lexer;
+
+// skener nad delom GapText-a; tekst se menja između skeniranja, ne za vreme
+final class GapScannerCore extends ScannerCore {
+    private final GapText src;
+    private final int end;
+
+    GapScannerCore(GapText src) { this(src, 0, src.length(), 1, 1); }
+
+    GapScannerCore(GapText src, int from, int to, int line, int col) {
+        this.src = src;
+        this.end = to;
+        this.cur = from;
+        this.startIdx = from;
+        this.line = line;
+        this.startLine = line;
+        this.col = col;
+        this.startCol = col;
+    }
+
+    @Override public boolean isAtEnd() { return cur >= end; }
+    @Override public char peek() { return isAtEnd() ? '\0' : src.charAt(cur); }
+    @Override public char peekNext() { return (cur + 1 >= end) ? '\0' : src.charAt(cur + 1); }
+
+    @Override
+    public char advance() {
+        char c = src.charAt(cur++);
+        if (c == '\n') { line++; col = 1; } else { col++; }
+        return c;
+    }
+
+    @Override
+    public boolean match(char expected) {
+        if (isAtEnd() || src.charAt(cur) != expected) return false;
+        cur++; col++;
+        return true;
+    }
+
+    @Override
+    public char charAt(int offset) { return src.charAt(offset); }
+
+    @Override
+    public boolean textEquals(int from, int to, String s) { return src.textEquals(from, to, s); }
+
+    @Override
+    public String text(int from, int to) { return src.text(from, to); }
+
+    @Override
+    public int getChars(int from, int to, char[] dst, int max) { return src.getChars(from, to, dst, max); }
+
+    @Override
+    public int limit() { return end; }
+
+    @Override
+    public ScannerCore range(int from, int to, int line, int col) { return new GapScannerCore(src, from, to, line, col); }
+}
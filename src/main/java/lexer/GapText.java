@@ -0,0 +1,88 @@
+package lexer;
+
+import lexer.token.SourceText;
+
+// tekst sa rupom na mestu poslednje izmene; izmena pomera rupu samo za razmak od prethodne izmene,
+// pa niz izmena u istom delu izvora ne kopira ostatak teksta
+final class GapText implements SourceText {
+    private char[] buf;
+    // rupa je [gapStart, gapEnd) u buf
+    private int gapStart, gapEnd;
+
+    GapText(String s) {
+        int n = s.length();
+        buf = new char[n + 256];
+        s.getChars(0, n, buf, 0);
+        gapStart = n;
+        gapEnd = buf.length;
+    }
+
+    int length() { return buf.length - (gapEnd - gapStart); }
+
+    char charAt(int offset) { return offset < gapStart ? buf[offset] : buf[offset + gapEnd - gapStart]; }
+
+    // zamenjuje [offset, offset + removed) sa inserted
+    void replace(int offset, int removed, String inserted) {
+        moveGap(offset);
+        gapEnd += removed;
+        int n = inserted.length();
+        if (gapEnd - gapStart < n) grow(n);
+        inserted.getChars(0, n, buf, gapStart);
+        gapStart += n;
+    }
+
+    private void moveGap(int offset) {
+        if (offset < gapStart) {
+            int n = gapStart - offset;
+            System.arraycopy(buf, offset, buf, gapEnd - n, n);
+            gapStart -= n;
+            gapEnd -= n;
+        } else if (offset > gapStart) {
+            int n = offset - gapStart;
+            System.arraycopy(buf, gapEnd, buf, gapStart, n);
+            gapStart += n;
+            gapEnd += n;
+        }
+    }
+
+    private void grow(int need) {
+        int tail = buf.length - gapEnd;
+        int cap = Math.max(buf.length + (buf.length >> 1), length() + need + 256);
+        char[] next = new char[cap];
+        System.arraycopy(buf, 0, next, 0, gapStart);
+        System.arraycopy(buf, gapEnd, next, cap - tail, tail);
+        buf = next;
+        gapEnd = cap - tail;
+    }
+
+    @Override
+    public String text(int from, int to) {
+        to = Math.min(to, length());
+        if (to <= gapStart) return new String(buf, from, to - from);
+        if (from >= gapStart) return new String(buf, from + gapEnd - gapStart, to - from);
+        char[] out = new char[to - from];
+        getChars(from, to, out, out.length);
+        return new String(out);
+    }
+
+    @Override
+    public boolean textEquals(int from, int to, String s) {
+        if (to - from != s.length()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (charAt(from + i) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int getChars(int from, int to, char[] dst, int max) {
+        int n = Math.min(Math.min(to, length()) - from, max);
+        int head = Math.max(0, Math.min(n, gapStart - from));
+        System.arraycopy(buf, from, dst, 0, head);
+        System.arraycopy(buf, from + head + gapEnd - gapStart, dst, head, n - head);
+        return n;
+    }
+
+    @Override
+    public String toString() { return text(0, length()); }
+}
@@ -0,0 +1,130 @@
+package lexer;
+
+import diagnostic.Diagnostic;
+import lexer.token.TokenBuffer;
+import lexer.token.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// drži izvor i njegove tokene; posle izmene ponovo leksira samo okolinu izmene, a bafer tokena menja u mestu
+// izvor je GapText, a pozicije tokena iza izmene su relativne prema kraju (TokenBuffer.replace), pa izmena ne kopira
+// ni izvor ni rep tokena, već samo ono između nje i prethodne izmene
+// uvek radi u recovering modu, greške su u diagnostics()
+public final class IncrementalLexer {
+    private final GapText source;
+    private final TokenBuffer tokens;
+    private List<Diagnostic> diagnostics;
+    // tokeni [changedFrom, changedTo) su ponovo leksirani u poslednjoj izmeni; ispred su isti, iza samo pomereni
+    private int changedFrom, changedTo;
+
+    public IncrementalLexer(String source) {
+        this.source = new GapText(source);
+        Lexer lexer = new Lexer(new GapScannerCore(this.source)).recovering();
+        this.tokens = lexer.scanBuffer();
+        this.tokens.rebind(this.source);
+        this.diagnostics = lexer.diagnostics();
+        this.changedTo = tokens.size();
+    }
+
+    // pravi String celog izvora
+    public String source() { return source.toString(); }
+
+    public int length() { return source.length(); }
+
+    public TokenBuffer tokens() { return tokens; }
+
+    public List<Diagnostic> diagnostics() { return diagnostics; }
+
+    public int changedFrom() { return changedFrom; }
+
+    public int changedTo() { return changedTo; }
+
+    // zamenjuje [offset, offset + removed) sa inserted i vraća ažurirani bafer tokena
+    public TokenBuffer edit(int offset, int removed, String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > source.length()) {
+            throw new IndexOutOfBoundsException("Edit [" + offset + ", " + (offset + removed) + ") out of source");
+        }
+        // tokeni i greške su do tokens.replace() u pozicijama starog teksta; sa novim se porede preko delta
+        int r = firstEndingAtOrAfter(tokens, offset) - 1;
+        source.replace(offset, removed, inserted);
+        int delta = inserted.length() - removed;
+        int editEnd = offset + inserted.length();
+
+        // restart od tokena pre prvog koji dodiruje izmenu; lexer nema stanje između tokena
+        int from;
+        Lexer lexer;
+        if (r < 0) {
+            r = 0;
+            from = 0;
+            lexer = new Lexer(new GapScannerCore(source), tokens.symbols()).recovering();
+        } else {
+            from = tokens.start(r);
+            lexer = new Lexer(new GapScannerCore(source, from, source.length(), tokens.line(r), tokens.colStart(r)), tokens.symbols()).recovering();
+        }
+        TokenBuffer fresh = lexer.buffer();
+
+        // sinhronizacija: novi NEWLINE iza izmene na mestu postojećeg NEWLINE-a; dalje su tokeni isti, samo pomereni
+        int sync = -1;
+        while (true) {
+            int i = lexer.scanNext();
+            TokenType type = fresh.type(i);
+            if (type == TokenType.EOF) break;
+            if (type != TokenType.NEWLINE || fresh.start(i) < editEnd) continue;
+            int k = newlineAt(tokens, fresh.start(i) - delta);
+            if (k >= 0) {
+                sync = k;
+                break;
+            }
+        }
+
+        List<Diagnostic> diags = new ArrayList<>();
+        for (Diagnostic d : diagnostics) {
+            if (d.offset < from) diags.add(d);
+        }
+        diags.addAll(lexer.diagnostics());
+
+        // tokeni [r, sync] se menjaju novim, rep iza se pomera kroz bazu repa
+        int to = tokens.size();
+        int lineDelta = 0;
+        if (sync >= 0) {
+            to = sync + 1;
+            lineDelta = fresh.line(fresh.size() - 1) - tokens.line(sync);
+            int syncStart = tokens.start(sync);
+            for (Diagnostic d : diagnostics) {
+                if (d.offset > syncStart) {
+                    diags.add(new Diagnostic(d.code, d.line + lineDelta, d.col, d.offset + delta, d.length));
+                }
+            }
+        }
+        tokens.replace(r, to, fresh, delta, lineDelta);
+        changedFrom = r;
+        changedTo = r + fresh.size();
+
+        this.diagnostics = diags;
+        return tokens;
+    }
+
+    // prvi token čiji kraj je >= offset (EOF ako ga nema)
+    private static int firstEndingAtOrAfter(TokenBuffer b, int offset) {
+        int lo = 0, hi = b.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (b.end(mid) >= offset) hi = mid; else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    // indeks NEWLINE tokena koji počinje tačno na offset-u, inače -1
+    private static int newlineAt(TokenBuffer b, int offset) {
+        int lo = 0, hi = b.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (b.start(mid) >= offset) hi = mid; else lo = mid + 1;
+        }
+        for (int i = lo; i < b.size() && b.start(i) == offset; i++) {
+            if (b.type(i) == TokenType.NEWLINE) return i;
+        }
+        return -1;
+    }
+}
@@ -1,58 +1,110 @@
 package lexer;
 
+import diagnostic.Diagnostic;
+import lexer.token.PullTokenStream;
+import lexer.token.SymbolTable;
 import lexer.token.Token;
+import lexer.token.TokenBuffer;
+import lexer.token.TokenStream;
 import lexer.token.TokenType;
 
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public class Lexer {
-    private final ScannerCore sc;
-    private final String source;
-    private final List<Token> tokens = new ArrayList<>();
-
-    private static final Map<String, TokenType> KEYWORDS = Map.ofEntries(
-
+    // do ove granice mantisa prima još jednu cifru bez prekoračenja long-a
+    private static final long MANTISSA_LIMIT = (Long.MAX_VALUE - 9) / 10;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
 
-            Map.entry("brojElixira", TokenType.BROJ_ELIXIRA),
-            Map.entry("slovoKartice", TokenType.SLOVO_KARTICE),
-            Map.entry("doubleElixir", TokenType.DOUBLE_ELIXIR),
-            Map.entry("imeKartice", TokenType.IME_KARTICE),
+    private final ScannerCore sc;
+    private final TokenBuffer tokens;
+    private final SymbolTable symbols;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private boolean recovering = false;
 
+    public Lexer(String source) {
+        this(ScannerCore.of(source));
+    }
 
-            Map.entry("battle", TokenType.BATTLE),
+    public Lexer(Reader source) {
+        this(ScannerCore.of(source));
+    }
 
+    public Lexer(byte[] utf8) {
+        this(ScannerCore.of(utf8));
+    }
 
-            Map.entry("bezElixira", TokenType.BEZ_ELIXIRA),
+    public Lexer(ScannerCore sc) {
+        this(sc, new SymbolTable());
+    }
 
+    // više Lexer-a iste kompilacije može deliti tabelu simbola (ne istovremeno)
+    public Lexer(ScannerCore sc, SymbolTable symbols) {
+        this.sc = sc;
+        this.symbols = symbols;
+        this.tokens = new TokenBuffer(sc.retainsText() ? sc : null, symbols, 256);
+    }
 
-            Map.entry("ucitajKarticu", TokenType.UCITAJ_KARTICU),
-            Map.entry("ispisiKarticu", TokenType.ISPISI_KARTICU),
+    // umesto izuzetka na prvoj grešci: ERROR token, zapis u diagnostics() i nastavak skeniranja
+    public Lexer recovering() {
+        this.recovering = true;
+        return this;
+    }
 
+    public List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
 
-            Map.entry("leader", TokenType.LEADER),
-            Map.entry("elder", TokenType.ELDER),
-            Map.entry("member", TokenType.MEMBER),
+    public SymbolTable symbols() {
+        return symbols;
+    }
 
+    TokenBuffer buffer() {
+        return tokens;
+    }
 
-            Map.entry("cycle", TokenType.CYCLE),
+    public List<Token> scanTokens() {
+        return scanBuffer().toList();
+    }
 
+    // pojedinačni tokeni na zahtev; ne kombinovati sa scanBuffer() na istom Lexer-u
+    public Token nextToken() {
+        tokens.clear();
+        return tokens.get(scanNext());
+    }
 
-            Map.entry("krajBorbe", TokenType.KRAJ_BORBE)
-    );
+    // skenira do sledećeg tokena (ili EOF) u bafer i vraća njegov indeks
+    int scanNext() {
+        int before = tokens.size();
+        while (tokens.size() == before) {
+            sc.skipBlanks();
+            sc.beginToken();
+            if (sc.isAtEnd()) {
+                emit(TokenType.EOF, sc.getLine(), sc.getCol(), sc.getCol());
+            } else {
+                scanToken();
+            }
+        }
+        return before;
+    }
 
-    public Lexer(String source) {
-        this.source = source;
-        this.sc = new ScannerCore(source);
+    public TokenStream stream() {
+        return new PullTokenStream(this::nextToken);
     }
 
-    public List<Token> scanTokens() {
-        while (!sc.isAtEnd()) {
+    public TokenBuffer scanBuffer() {
+        while (true) {
+            sc.skipBlanks();
+            if (sc.isAtEnd()) break;
             sc.beginToken();
             scanToken();
         }
-        tokens.add(new Token(TokenType.EOF, "\0", null, sc.getLine(), sc.getCol(), sc.getCol()));
+        sc.beginToken();
+        emit(TokenType.EOF, sc.getLine(), sc.getCol(), sc.getCol());
         return tokens;
     }
 
@@ -112,20 +164,18 @@ public class Lexer {
             case '@' -> atType();
 
 
-            case '\n' -> tokens.add(new Token(
-                    TokenType.NEWLINE, "\n", null,
-                    sc.getStartLine(), sc.getStartCol(), sc.getStartCol()
-            ));
-
-            case ' ', '\r', '\t' -> {  }
+            case '\n' -> emit(TokenType.NEWLINE, sc.getStartLine(), sc.getStartCol(), sc.getStartCol());
 
             default -> {
-                if (Character.isDigit(c)) {
-                    number();
+                if (CharClass.isDigit(c)) {
+                    number(c);
                 } else if (isIdentStart(c)) {
-                    identifier();
+                    identifier(c);
                 } else {
-                    throw error("Unexpected character: '" + c + "'");
+                    if (recovering) {
+                        while (!sc.isAtEnd() && isInvalid(sc.peek())) sc.advance();
+                    }
+                    report(Diagnostic.Code.UNEXPECTED_CHAR);
                 }
             }
         }
@@ -137,7 +187,8 @@ public class Lexer {
         int col = sc.getStartCol();
 
         if (!isIdentStart(sc.peek())) {
-            throw error("Expected identifier after '@'");
+            report(Diagnostic.Code.AT_TYPE_NO_IDENT);
+            return;
         }
 
         sc.advance();
@@ -145,54 +196,208 @@ public class Lexer {
         while (isIdentPart(sc.peek())) sc.advance();
 
         if (sc.peek() != '@') {
-            throw error("Expected closing '@' in @type@");
+            report(Diagnostic.Code.AT_TYPE_UNCLOSED);
+            return;
         }
 
         sc.advance();
 
-        String text = source.substring(sc.getStartIdx(), sc.getCur());
+        emit(TokenType.AT_TYPE, line, col, sc.getCol() - 1);
+    }
+
+    // decimalni int i double (cifre.cifre[e[+-]cifre]); vrednost se računa tokom skeniranja
+    // HEX_LIT i OCT_LIT se ne prave: oblik HB4C / O43 iz test9 je po gramatici i ispravan IDENT
+    private void number(char first) {
+        // int vrednost i, paralelno, mantisa za slučaj da je ovo double
+        long value = digit(first);
+        long mantissa = value;
+        int exp = 0;
+        boolean exact = true;
+        while (CharClass.isDigit(sc.peek())) {
+            int d = digit(sc.advance());
+            value = value * 10 + d;
+            if (value > Integer.MAX_VALUE) value = Integer.MAX_VALUE + 1L;
+            if (mantissa < MANTISSA_LIMIT) mantissa = mantissa * 10 + d;
+            else { exp++; if (d != 0) exact = false; }
+        }
+
+        if (sc.peek() == '.' && CharClass.isDigit(sc.peekNext())) {
+            sc.advance();
+            while (CharClass.isDigit(sc.peek())) {
+                int d = digit(sc.advance());
+                if (mantissa < MANTISSA_LIMIT) { mantissa = mantissa * 10 + d; exp--; }
+                else if (d != 0) exact = false;
+            }
+            char e = sc.peek();
+            if (e == 'e' || e == 'E') {
+                sc.advance();
+                boolean negative = sc.match('-');
+                if (!negative) sc.match('+');
+                int e10 = exponent();
+                if (e10 < 0) return;
+                exp += negative ? -e10 : e10;
+            }
+            doubleLiteral(mantissa, exp, exact);
+            return;
+        }
 
-        tokens.add(new Token(TokenType.AT_TYPE, text, null,  line, col, sc.getCol() - 1));
+        if (value > Integer.MAX_VALUE) {
+            invalidNumber(Diagnostic.Code.INT_LITERAL_RANGE);
+            return;
+        }
+        if (CharClass.isLetter(sc.peek())) {
+            invalidNumber(Diagnostic.Code.INT_LITERAL_LETTER);
+            return;
+        }
+        emitValue(TokenType.INT_LIT, value);
     }
 
-    private void number() {
-        while (Character.isDigit(sc.peek())) sc.advance();
-        String text = source.substring(sc.getStartIdx(), sc.getCur());
-        char next = sc.peek();
-        if (Character.isAlphabetic(next)) {
-            throw error("Error: Character in int literal");
+    // cifre eksponenta; bez njih prijavljuje grešku i vraća -1
+    private int exponent() {
+        if (!CharClass.isDigit(sc.peek())) {
+            invalidNumber(Diagnostic.Code.NUMBER_LITERAL_DIGITS);
+            return -1;
+        }
+        int exp = 0;
+        while (CharClass.isDigit(sc.peek())) {
+            int d = digit(sc.advance());
+            if (exp < 100_000) exp = exp * 10 + d;
         }
-        addLiteralInt(text);
+        return exp;
     }
 
-    private void identifier() {
-        while (isIdentPart(sc.peek())) sc.advance();
-        String text = source.substring(sc.getStartIdx(), sc.getCur());
-        TokenType type = KEYWORDS.getOrDefault(text, TokenType.IDENT);
-        add(type, text);
+    // tačna mantisa ispod 2^53 i |exp| <= 22 daje tačno zaokružen rezultat jednim množenjem/deljenjem
+    private void doubleLiteral(long mantissa, int exp, boolean exact) {
+        if (isIdentPart(sc.peek())) {
+            invalidNumber(Diagnostic.Code.NUMBER_LITERAL_LETTER);
+            return;
+        }
+        double value;
+        if (exact && mantissa < (1L << 53) && exp >= -22 && exp <= 22) {
+            value = exp < 0 ? mantissa / POW10[-exp] : mantissa * POW10[exp];
+        } else {
+            value = parseDouble(sc.lexeme());
+        }
+        if (Double.isInfinite(value)) {
+            report(Diagnostic.Code.DOUBLE_LITERAL_RANGE);
+            return;
+        }
+        emitValue(TokenType.DOUBLE_LIT, Double.doubleToRawLongBits(value));
+    }
+
+    // retki slučajevi (dugačka mantisa, veliki eksponent); Unicode cifre se prevode u ASCII
+    private static double parseDouble(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            sb.append(c >= 128 && Character.isDigit(c) ? (char) ('0' + Character.digit(c, 10)) : c);
+        }
+        return Double.parseDouble(sb.toString());
+    }
+
+    private void invalidNumber(Diagnostic.Code code) {
+        if (recovering) {
+            while (isIdentPart(sc.peek())) sc.advance();
+        }
+        report(code);
+    }
+
+    private static int digit(char c) { return c < 128 ? c - '0' : Character.digit(c, 10); }
+
+
+    // hash se računa usput (isti kao String.hashCode), pa se ime interno-uje bez novog String-a
+    private void identifier(char first) {
+        int hash = first;
+        while (isIdentPart(sc.peek())) hash = 31 * hash + sc.advance();
+        int start = sc.getStartIdx();
+        TokenType type = keyword(start, sc.getCur() - start);
+        if (type != TokenType.IDENT) {
+            add(type);
+            return;
+        }
+        emitValue(TokenType.IDENT, symbols.intern(sc, start, sc.getCur(), hash));
+    }
+
+    // ključne reči se prepoznaju direktno nad izvorom: dužina, prvi znak, pa poređenje regiona
+    private TokenType keyword(int start, int len) {
+        return switch (len) {
+            case 5 -> switch (sc.charAt(start)) {
+                case 'c' -> keyword(start, "cycle", TokenType.CYCLE);
+                case 'e' -> keyword(start, "elder", TokenType.ELDER);
+                default -> TokenType.IDENT;
+            };
+            case 6 -> switch (sc.charAt(start)) {
+                case 'b' -> keyword(start, "battle", TokenType.BATTLE);
+                case 'l' -> keyword(start, "leader", TokenType.LEADER);
+                case 'm' -> keyword(start, "member", TokenType.MEMBER);
+                default -> TokenType.IDENT;
+            };
+            case 9 -> keyword(start, "krajBorbe", TokenType.KRAJ_BORBE);
+            case 10 -> switch (sc.charAt(start)) {
+                case 'i' -> keyword(start, "imeKartice", TokenType.IME_KARTICE);
+                case 'b' -> keyword(start, "bezElixira", TokenType.BEZ_ELIXIRA);
+                default -> TokenType.IDENT;
+            };
+            case 11 -> keyword(start, "brojElixira", TokenType.BROJ_ELIXIRA);
+            case 12 -> switch (sc.charAt(start)) {
+                case 's' -> keyword(start, "slovoKartice", TokenType.SLOVO_KARTICE);
+                case 'd' -> keyword(start, "doubleElixir", TokenType.DOUBLE_ELIXIR);
+                default -> TokenType.IDENT;
+            };
+            case 13 -> switch (sc.charAt(start)) {
+                case 'u' -> keyword(start, "ucitajKarticu", TokenType.UCITAJ_KARTICU);
+                case 'i' -> keyword(start, "ispisiKarticu", TokenType.ISPISI_KARTICU);
+                default -> TokenType.IDENT;
+            };
+            default -> TokenType.IDENT;
+        };
+    }
+
+    private TokenType keyword(int start, String word, TokenType type) {
+        return sc.regionMatches(start, word) ? type : TokenType.IDENT;
     }
 
-    private boolean isIdentStart(char c) { return Character.isLetter(c) || c == '_'; }
-    private boolean isIdentPart(char c)  { return isIdentStart(c) || Character.isDigit(c); }
+    private boolean isIdentStart(char c) { return CharClass.isIdentStart(c); }
+    private boolean isIdentPart(char c)  { return CharClass.isIdentPart(c); }
+    private boolean isInvalid(char c) {
+        return !(CharClass.isBlank(c) || c == '\n' || CharClass.isPunct(c) || CharClass.isIdentPart(c));
+    }
 
     private void add(TokenType type) {
-        String lex = source.substring(sc.getStartIdx(), sc.getCur());
-        tokens.add(new Token(type, lex, null,
-                sc.getStartLine(), sc.getStartCol(), sc.getCol() - 1));
+        emit(type, sc.getStartLine(), sc.getStartCol(), sc.getCol() - 1);
+    }
+
+    private void emitValue(TokenType type, long value) {
+        emit(type, sc.getStartLine(), sc.getStartCol(), sc.getCol() - 1, value);
     }
 
-    private void add(TokenType type, String text) {
-        tokens.add(new Token(type, text, null,
-                sc.getStartLine(), sc.getStartCol(), sc.getCol() - 1));
+    private void emit(TokenType type, int line, int colStart, int colEnd) {
+        emit(type, line, colStart, colEnd, 0L);
     }
 
-    private void addLiteralInt(String literal) {
-        tokens.add(new Token(TokenType.INT_LIT, literal, Integer.valueOf(literal),
-                sc.getStartLine(), sc.getStartCol(), sc.getCol() - 1));
+    private void emit(TokenType type, int line, int colStart, int colEnd, long value) {
+        String text = null;
+        if (tokens.storesText() && TokenBuffer.hasOwnText(type)) {
+            text = type == TokenType.IDENT ? symbols.name((int) value)
+                    : (type == TokenType.STRING_LIT || type == TokenType.CHAR_LIT)
+                    ? sc.text(sc.getStartIdx() + 1, sc.getCur() - 1)
+                    : sc.lexeme();
+        }
+        tokens.add(type, sc.getStartIdx(), sc.getCur(), line, colStart, colEnd, text, value);
+    }
+
+    private void report(Diagnostic.Code code) {
+        if (!recovering) throw error(code);
+        diagnostics.add(new Diagnostic(code, sc.getStartLine(), sc.getStartCol(),
+                sc.getStartIdx(), sc.getCur() - sc.getStartIdx()));
+        add(TokenType.ERROR);
     }
 
-    private RuntimeException error(String msg) {
-        String near = source.substring(sc.getStartIdx(), Math.min(sc.getCur(), source.length()));
+    private RuntimeException error(Diagnostic.Code code) {
+        String near = sc.lexeme();
+        String msg = code == Diagnostic.Code.UNEXPECTED_CHAR
+                ? code.message + ": '" + near + "'"
+                : code.message;
         return new RuntimeException("LEXER > " + msg + " at " +
                 sc.getStartLine() + ":" + sc.getStartCol() + " near '" + near + "'");
     }
@@ -200,42 +405,38 @@ public class Lexer {
         int line = sc.getStartLine();
         int col = sc.getStartCol();
 
-        StringBuilder sb = new StringBuilder();
-
         while (!sc.isAtEnd() && sc.peek() != '"') {
-            sb.append(sc.advance());
+            sc.advance();
         }
 
-        if (sc.isAtEnd()) throw error("Unterminated string literal");
+        if (sc.isAtEnd()) {
+            report(Diagnostic.Code.UNTERMINATED_STRING);
+            return;
+        }
 
         sc.advance();
 
-        tokens.add(new Token(
-                TokenType.STRING_LIT,
-                sb.toString(),
-                sb.toString(),
-                line, col, sc.getCol() - 1
-        ));
+        emit(TokenType.STRING_LIT, line, col, sc.getCol() - 1);
     }
     private void charLiteral() {
         int line = sc.getStartLine();
         int col = sc.getStartCol();
 
-        if (sc.isAtEnd()) throw error("Unterminated char literal");
+        if (sc.isAtEnd()) {
+            report(Diagnostic.Code.UNTERMINATED_CHAR);
+            return;
+        }
 
-        char ch = sc.advance();
+        sc.advance();
 
-        if (sc.peek() != '\'')
-        throw error("Expected closing ' in char literal");
+        if (sc.peek() != '\'') {
+            report(Diagnostic.Code.CHAR_LITERAL_UNCLOSED);
+            return;
+        }
 
         sc.advance();
 
-        tokens.add(new Token(
-                TokenType.CHAR_LIT,
-                String.valueOf(ch),
-                (int) ch,
-                line, col, sc.getCol() - 1
-        ));
+        emit(TokenType.CHAR_LIT, line, col, sc.getCol() - 1);
     }
 
 }
@@ -0,0 +1,164 @@
+package lexer;
+
+import diagnostic.Diagnostic;
+import lexer.token.SymbolTable;
+import lexer.token.TokenBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// deli ulaz na granicama top-level funkcija i leksira delove paralelno; rezultat je isti kao Lexer.scanBuffer()
+public final class ParallelLexer {
+    // ulaz kraći od dva ovakva dela se leksira sekvencijalno
+    public static final int MIN_CHUNK = 256 * 1024;
+
+    private final ScannerCore sc;
+    private final ForkJoinPool pool;
+    private final SymbolTable symbols = new SymbolTable();
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private boolean recovering = false;
+
+    public ParallelLexer(ScannerCore sc) {
+        this(sc, ForkJoinPool.commonPool());
+    }
+
+    public ParallelLexer(ScannerCore sc, ForkJoinPool pool) {
+        this.sc = sc;
+        this.pool = pool;
+    }
+
+    public ParallelLexer recovering() {
+        this.recovering = true;
+        return this;
+    }
+
+    public List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    public TokenBuffer scanBuffer() {
+        if (pool.getParallelism() < 2 || !sc.retainsText() || sc.limit() - sc.getCur() < 2 * MIN_CHUNK) {
+            return scan(sc);
+        }
+
+        List<int[]> cuts = boundaries();
+        if (cuts.size() < 3) return scan(sc);
+
+        List<Callable<Part>> tasks = new ArrayList<>();
+        for (int k = 0; k + 1 < cuts.size(); k++) {
+            int[] from = cuts.get(k);
+            int to = cuts.get(k + 1)[0];
+            tasks.add(() -> {
+                Lexer lexer = new Lexer(sc.range(from[0], to, from[1], 1), new SymbolTable());
+                if (recovering) lexer.recovering();
+                try {
+                    lexer.scanBuffer();
+                } catch (RuntimeException ex) {
+                    return new Part(null, ex);
+                }
+                return new Part(lexer, null);
+            });
+        }
+
+        List<Future<Part>> parts = pool.invokeAll(tasks);
+        TokenBuffer out = null;
+        for (int k = 0; k < parts.size(); k++) {
+            // greška prvog dela sa greškom, kao kod sekvencijalnog lexera
+            Part done = join(parts.get(k));
+            if (done.error != null) throw done.error;
+            Lexer part = done.lexer;
+            TokenBuffer b = part.buffer();
+            if (out == null) out = new TokenBuffer(sc, symbols, b.size() * parts.size());
+            // EOF ostaje samo iz poslednjeg dela
+            int base = out.size();
+            out.append(b, 0, k + 1 == parts.size() ? b.size() : b.size() - 1);
+            // svaki deo ima svoju tabelu simbola; id-evi se prevode u zajedničku
+            SymbolTable local = part.symbols();
+            int[] ids = new int[local.size()];
+            for (int id = 0; id < ids.length; id++) ids[id] = symbols.intern(local.name(id));
+            out.remapSymbols(base, out.size(), ids);
+            diagnostics.addAll(part.diagnostics());
+        }
+        return out;
+    }
+
+    private TokenBuffer scan(ScannerCore source) {
+        Lexer lexer = new Lexer(source, symbols);
+        if (recovering) lexer.recovering();
+        TokenBuffer b = lexer.scanBuffer();
+        diagnostics.addAll(lexer.diagnostics());
+        return b;
+    }
+
+    // parovi {offset, linija}: počeci delova odmah posle '\n' na dubini 0, van string/char literala
+    private List<int[]> boundaries() {
+        int end = sc.limit();
+        int i = sc.getCur();
+        int line = sc.getLine();
+        int target = Math.max(MIN_CHUNK, (end - i) / (pool.getParallelism() * 4));
+
+        List<int[]> cuts = new ArrayList<>();
+        cuts.add(new int[]{i, line});
+        int next = i + target;
+        int depth = 0;
+
+        while (i < end) {
+            char c = sc.charAt(i);
+            i = sc.charEnd(i);
+            switch (c) {
+                case '\n' -> {
+                    line++;
+                    if (depth == 0 && i >= next && end - i >= target / 2) {
+                        cuts.add(new int[]{i, line});
+                        next = i + target;
+                    }
+                }
+                case '#' -> depth++;
+                case '$' -> { if (depth > 0) depth--; }
+                case '"' -> {
+                    while (i < end && sc.charAt(i) != '"') {
+                        if (sc.charAt(i) == '\n') line++;
+                        i = sc.charEnd(i);
+                    }
+                    i++;
+                }
+                case '\'' -> {
+                    // kao Lexer.charLiteral: jedan UTF-16 znak, pa zatvarajući ' ako postoji
+                    if (i < end) {
+                        char ch = sc.charAt(i);
+                        if (ch == '\n') line++;
+                        i = sc.charEnd(i);
+                        if (!Character.isHighSurrogate(ch) && i < end && sc.charAt(i) == '\'') i++;
+                    }
+                }
+                default -> { }
+            }
+        }
+        cuts.add(new int[]{end, line});
+        return cuts;
+    }
+
+    // leksiran deo ili izuzetak koji je bacio; Future.get() bi vratio kopiju izuzetka sa drugom porukom
+    private record Part(Lexer lexer, RuntimeException error) {}
+
+    private static Part join(Future<Part> f) {
+        try {
+            return f.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) throw re;
+            if (ex.getCause() instanceof Error err) throw err;
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+final class ReaderScannerCore extends ScannerCore {
+    static final int DEFAULT_WINDOW = 64 * 1024;
+
+    private final Reader in;
+    private char[] buf;
+    private int base = 0;   // apsolutni offset od buf[0]
+    private int limit = 0;  // broj validnih znakova u buf
+    private boolean eof = false;
+
+    ReaderScannerCore(Reader in, int windowSize) {
+        if (windowSize < 2) throw new IllegalArgumentException("prozor mora imati bar 2 znaka");
+        this.in = in;
+        this.buf = new char[windowSize];
+    }
+
+    @Override
+    public boolean isAtEnd() { return !available(1); }
+
+    @Override
+    public char peek() { return available(1) ? buf[cur - base] : '\0'; }
+
+    @Override
+    public char peekNext() { return available(2) ? buf[cur + 1 - base] : '\0'; }
+
+    @Override
+    public char advance() {
+        if (!available(1)) throw new IndexOutOfBoundsException("kraj ulaza na offsetu " + cur);
+        char c = buf[cur++ - base];
+        if (c == '\n') { line++; col = 1; } else { col++; }
+        return c;
+    }
+
+    @Override
+    public boolean match(char expected) {
+        if (!available(1) || buf[cur - base] != expected) return false;
+        cur++; col++;
+        return true;
+    }
+
+    @Override
+    public boolean retainsText() { return false; }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public char charAt(int offset) {
+        if (offset < base) throw new IllegalStateException("znak na offsetu " + offset + " više nije u prozoru");
+        return buf[offset - base];
+    }
+
+    @Override
+    public String text(int from, int to) {
+        if (from < base) throw new IllegalStateException("tekst na offsetu " + from + " više nije u prozoru");
+        return new String(buf, from - base, Math.min(to - base, limit) - (from - base));
+    }
+
+    @Override
+    public int getChars(int from, int to, char[] dst, int max) {
+        if (from < base) throw new IllegalStateException("tekst na offsetu " + from + " više nije u prozoru");
+        int n = Math.min(Math.min(to - base, limit) - (from - base), max);
+        System.arraycopy(buf, from - base, dst, 0, n);
+        return n;
+    }
+
+    @Override
+    public boolean textEquals(int from, int to, String s) {
+        if (from < base) throw new IllegalStateException("tekst na offsetu " + from + " više nije u prozoru");
+        if (to - from != s.length()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (buf[from - base + i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private boolean available(int n) {
+        while (cur + n - base > limit) {
+            if (eof) return false;
+            fill();
+        }
+        return true;
+    }
+
+    // pomera prozor tako da počinje od početka tekućeg tokena, pa dopunjava iz Reader-a
+    private void fill() {
+        int keep = Math.min(startIdx, cur) - base;
+        if (keep > 0) {
+            System.arraycopy(buf, keep, buf, 0, limit - keep);
+            base += keep;
+            limit -= keep;
+        }
+        if (limit == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+        try {
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) eof = true; else limit += n;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
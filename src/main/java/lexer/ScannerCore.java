@@ -1,33 +1,99 @@
 package lexer;
 
-public final class ScannerCore {
-    private final String src;
-    private int cur = 0;
-    private int line = 1;
-    private int col = 1;
-
-    private int startIdx = 0;
-    private int startLine = 1;
-    private int startCol = 1;
-
-    public ScannerCore(String src) { this.src = src; }
-
-    public boolean isAtEnd() { return cur >= src.length(); }
-    public char peek() { return isAtEnd() ? '\0' : src.charAt(cur); }
-    public char peekNext() { return (cur + 1 >= src.length()) ? '\0' : src.charAt(cur + 1); }
-
-    public char advance() {
-        char c = src.charAt(cur++);
-        if (c == '\n') { line++; col = 1; } else { col++; }
-        return c;
+import lexer.token.SourceText;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public abstract class ScannerCore implements SourceText, AutoCloseable {
+    // fajlovi od ovoliko bajtova naviše se mapiraju umesto da se kopiraju na heap
+    public static final long MAP_THRESHOLD = 1L << 20;
+
+    protected int cur = 0;
+    protected int line = 1;
+    protected int col = 1;
+
+    protected int startIdx = 0;
+    protected int startLine = 1;
+    protected int startCol = 1;
+
+    public static ScannerCore of(String src) { return new StringScannerCore(src); }
+
+    // ulaz se čita u prozorima fiksne veličine; u memoriji ostaje samo tekući token
+    public static ScannerCore of(Reader in) { return new ReaderScannerCore(in, ReaderScannerCore.DEFAULT_WINDOW); }
+    public static ScannerCore of(Reader in, int windowSize) { return new ReaderScannerCore(in, windowSize); }
+    public static ScannerCore of(ReadableByteChannel ch) {
+        return of(Channels.newReader(ch, StandardCharsets.UTF_8));
     }
 
-    public boolean match(char expected) {
-        if (isAtEnd() || src.charAt(cur) != expected) return false;
-        cur++; col++;
+    // UTF-8 bajtovi bez dekodiranja u String; offseti tokena su tada u bajtovima
+    public static ScannerCore of(byte[] utf8) { return new Utf8ScannerCore(ByteBuffer.wrap(utf8)); }
+    public static ScannerCore of(ByteBuffer utf8) { return new Utf8ScannerCore(utf8); }
+
+    // mali fajlovi se čitaju u byte[], veliki mapiraju, a preko 2 GB čitaju kroz prozor
+    public static ScannerCore open(Path file) throws IOException {
+        long size = Files.size(file);
+        if (size < MAP_THRESHOLD) return of(Files.readAllBytes(file));
+        if (size > Integer.MAX_VALUE) return of(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return of(ch.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public abstract boolean isAtEnd();
+    public abstract char peek();
+    public abstract char peekNext();
+    public abstract char advance();
+    public abstract boolean match(char expected);
+
+    // tekst izmedju apsolutnih offseta; za streaming ulaz samo unutar tekućeg prozora
+    @Override
+    public abstract String text(int from, int to);
+
+    // da li je ceo izvor dostupan preko text() i posle skeniranja
+    public boolean retainsText() { return true; }
+
+    // znak na apsolutnom offsetu; za streaming ulaz samo unutar tekućeg prozora
+    public abstract char charAt(int offset);
+
+    public boolean regionMatches(int from, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (charAt(from + i) != text.charAt(i)) return false;
+        }
         return true;
     }
 
+    public String lexeme() { return text(startIdx, cur); }
+
+    // offset iza znaka koji počinje na offsetu (1 za char izvore, dužina UTF-8 sekvence za bajtove)
+    public int charEnd(int offset) { return offset + 1; }
+
+    // kraj ulaza (apsolutni offset); samo za ulaz koji je ceo u memoriji
+    public int limit() {
+        throw new UnsupportedOperationException("streaming ulaz nema poznatu dužinu");
+    }
+
+    // novi skener nad [from, to) istog izvora, koji počinje na zadatoj liniji i koloni
+    public ScannerCore range(int from, int to, int line, int col) {
+        throw new UnsupportedOperationException("streaming ulaz se ne može deliti");
+    }
+
+    // oslobađa ulaz (Reader, kanal); za ulaz u memoriji ne radi ništa
+    @Override
+    public void close() {}
+
+    public void skipBlanks() {
+        while (CharClass.isBlank(peek())) advance();
+    }
+
     public void beginToken() {
         startIdx = cur;
         startLine = line;
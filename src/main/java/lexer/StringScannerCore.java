@@ -0,0 +1,70 @@
+package lexer;
+
+final class StringScannerCore extends ScannerCore {
+    private final String src;
+    private final int end;
+
+    StringScannerCore(String src) { this(src, 0, src.length(), 1, 1); }
+
+    StringScannerCore(String src, int from, int to, int line, int col) {
+        this.src = src;
+        this.end = to;
+        this.cur = from;
+        this.startIdx = from;
+        this.line = line;
+        this.startLine = line;
+        this.col = col;
+        this.startCol = col;
+    }
+
+    @Override public boolean isAtEnd() { return cur >= end; }
+    @Override public char peek() { return isAtEnd() ? '\0' : src.charAt(cur); }
+    @Override public char peekNext() { return (cur + 1 >= end) ? '\0' : src.charAt(cur + 1); }
+
+    @Override
+    public char advance() {
+        char c = src.charAt(cur++);
+        if (c == '\n') { line++; col = 1; } else { col++; }
+        return c;
+    }
+
+    @Override
+    public boolean match(char expected) {
+        if (isAtEnd() || src.charAt(cur) != expected) return false;
+        cur++; col++;
+        return true;
+    }
+
+    @Override
+    public void skipBlanks() {
+        int i = cur;
+        while (i < end && CharClass.isBlank(src.charAt(i))) i++;
+        col += i - cur;
+        cur = i;
+    }
+
+    @Override
+    public char charAt(int offset) { return src.charAt(offset); }
+
+    @Override
+    public boolean regionMatches(int from, String text) { return src.regionMatches(from, text, 0, text.length()); }
+
+    @Override
+    public boolean textEquals(int from, int to, String s) { return to - from == s.length() && src.regionMatches(from, s, 0, s.length()); }
+
+    @Override
+    public String text(int from, int to) { return src.substring(from, Math.min(to, src.length())); }
+
+    @Override
+    public int getChars(int from, int to, char[] dst, int max) {
+        int n = Math.min(Math.min(to, src.length()) - from, max);
+        src.getChars(from, from + n, dst, 0);
+        return n;
+    }
+
+    @Override
+    public int limit() { return end; }
+
+    @Override
+    public ScannerCore range(int from, int to, int line, int col) { return new StringScannerCore(src, from, to, line, col); }
+}
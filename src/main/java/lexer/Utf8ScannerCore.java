@@ -0,0 +1,200 @@
+package lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// skenira UTF-8 bajtove direktno; offseti su u bajtovima, kolone u znakovima (UTF-16, kao kod String ulaza)
+final class Utf8ScannerCore extends ScannerCore {
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final ByteBuffer src;
+    private final int end;
+
+    // cur pokazuje na 4-bajtnu sekvencu čiji je high surrogate već pročitan
+    private boolean inLowHalf = false;
+
+    Utf8ScannerCore(ByteBuffer src) { this(src, src.position(), src.limit(), 1, 1); }
+
+    private Utf8ScannerCore(ByteBuffer src, int from, int to, int line, int col) {
+        this.src = src;
+        this.end = to;
+        this.cur = from;
+        this.startIdx = from;
+        this.line = line;
+        this.startLine = line;
+        this.col = col;
+        this.startCol = col;
+    }
+
+    @Override public boolean isAtEnd() { return cur >= end; }
+
+    @Override
+    public char peek() {
+        if (cur >= end) return '\0';
+        byte b = src.get(cur);
+        if (b >= 0) return (char) b;
+        return inLowHalf ? Character.lowSurrogate(codePoint(cur)) : firstChar(cur);
+    }
+
+    @Override
+    public char peekNext() {
+        if (cur >= end) return '\0';
+        byte b = src.get(cur);
+        int next;
+        if (b >= 0) {
+            next = cur + 1;
+        } else {
+            int cp = codePoint(cur);
+            if (cp < 0) next = cur + 1;
+            else if (!inLowHalf && !Character.isBmpCodePoint(cp)) return Character.lowSurrogate(cp);
+            else next = cur + sequenceLength(b);
+        }
+        return next < end ? charAt(next) : '\0';
+    }
+
+    @Override
+    public char advance() {
+        byte b = src.get(cur);
+        char c;
+        if (b >= 0) {
+            c = (char) b;
+            cur++;
+        } else if (inLowHalf) {
+            c = Character.lowSurrogate(codePoint(cur));
+            cur += 4;
+            inLowHalf = false;
+        } else {
+            int cp = codePoint(cur);
+            if (cp < 0) {
+                c = REPLACEMENT;
+                cur++;
+            } else if (Character.isBmpCodePoint(cp)) {
+                c = (char) cp;
+                cur += sequenceLength(b);
+            } else {
+                c = Character.highSurrogate(cp);
+                inLowHalf = true;
+            }
+        }
+        if (c == '\n') { line++; col = 1; } else { col++; }
+        return c;
+    }
+
+    @Override
+    public boolean match(char expected) {
+        if (expected >= 0x80 || cur >= end || src.get(cur) != (byte) expected) return false;
+        cur++; col++;
+        return true;
+    }
+
+    @Override
+    public void skipBlanks() {
+        int i = cur;
+        while (i < end && CharClass.isBlank((char) src.get(i))) i++;
+        col += i - cur;
+        cur = i;
+    }
+
+    @Override
+    public char charAt(int offset) {
+        byte b = src.get(offset);
+        return b >= 0 ? (char) b : firstChar(offset);
+    }
+
+    @Override
+    public boolean regionMatches(int from, String text) {
+        if (from + text.length() > end) return false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) return super.regionMatches(from, text);
+            if (src.get(from + i) != (byte) c) return false;
+        }
+        return true;
+    }
+
+    // ASCII ime se poredi bajt po bajt; ostalo dekodiranjem
+    @Override
+    public boolean textEquals(int from, int to, String s) {
+        if (to - from != s.length()) return s.length() < to - from && text(from, to).equals(s);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) return text(from, to).equals(s);
+            if (src.get(from + i) != (byte) c) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String text(int from, int to) {
+        int len = Math.min(to, end) - from;
+        if (src.hasArray()) {
+            return new String(src.array(), src.arrayOffset() + from, len, StandardCharsets.UTF_8);
+        }
+        return StandardCharsets.UTF_8.decode(src.slice(from, len)).toString();
+    }
+
+    // dekodira u dst bez String-a; neispravan UTF-8 ide kroz text(), da zamenski znakovi budu isti
+    @Override
+    public int getChars(int from, int to, char[] dst, int max) {
+        int lim = Math.min(to, end);
+        int n = 0;
+        for (int i = from; i < lim && n < max; ) {
+            byte b = src.get(i);
+            if (b >= 0) {
+                dst[n++] = (char) b;
+                i++;
+                continue;
+            }
+            int cp = codePoint(i);
+            if (cp < 0) return super.getChars(from, to, dst, max);
+            if (Character.isBmpCodePoint(cp)) {
+                dst[n++] = (char) cp;
+            } else {
+                dst[n++] = Character.highSurrogate(cp);
+                if (n < max) dst[n++] = Character.lowSurrogate(cp);
+            }
+            i += sequenceLength(b);
+        }
+        return n;
+    }
+
+    @Override
+    public int charEnd(int offset) {
+        byte b = src.get(offset);
+        if (b >= 0 || codePoint(offset) < 0) return offset + 1;
+        return offset + sequenceLength(b);
+    }
+
+    @Override
+    public int limit() { return end; }
+
+    @Override
+    public ScannerCore range(int from, int to, int line, int col) { return new Utf8ScannerCore(src, from, to, line, col); }
+
+    private static int sequenceLength(byte b) {
+        if ((b & 0xE0) == 0xC0) return 2;
+        if ((b & 0xF0) == 0xE0) return 3;
+        if ((b & 0xF8) == 0xF0) return 4;
+        return 1;
+    }
+
+    // prvi UTF-16 znak sekvence na offsetu; neispravna sekvenca daje U+FFFD
+    private char firstChar(int at) {
+        int cp = codePoint(at);
+        if (cp < 0) return REPLACEMENT;
+        return Character.isBmpCodePoint(cp) ? (char) cp : Character.highSurrogate(cp);
+    }
+
+    private int codePoint(int at) {
+        int b0 = src.get(at) & 0xFF;
+        int len = sequenceLength((byte) b0);
+        if (len == 1 || at + len > end) return -1;
+        int cp = b0 & (0xFF >> (len + 1));
+        for (int i = 1; i < len; i++) {
+            int b = src.get(at + i) & 0xFF;
+            if ((b & 0xC0) != 0x80) return -1;
+            cp = (cp << 6) | (b & 0x3F);
+        }
+        return cp;
+    }
+}
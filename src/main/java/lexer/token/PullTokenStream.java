@@ -0,0 +1,35 @@
+package lexer.token;
+
+import java.util.function.Supplier;
+
+public final class PullTokenStream implements TokenStream {
+    private final Supplier<Token> source;
+    private Token previous;
+    private Token current;
+    private Token next;
+
+    public PullTokenStream(Supplier<Token> source) {
+        this.source = source;
+        this.current = source.get();
+    }
+
+    @Override public TokenType peekType() { return current.type; }
+    @Override public TokenType peekNextType() { return peekNext().type; }
+    @Override public Token peek() { return current; }
+    @Override public Token previous() { return previous; }
+
+    @Override
+    public Token peekNext() {
+        if (next == null) next = current.type == TokenType.EOF ? current : source.get();
+        return next;
+    }
+
+    @Override
+    public Token advance() {
+        if (current.type == TokenType.EOF) return current;
+        previous = current;
+        current = peekNext();
+        next = null;
+        return previous;
+    }
+}
@@ -0,0 +1,16 @@
+package lexer.token;
+
+public interface SourceText {
+    String text(int from, int to);
+
+    // da li je tekst [from, to) jednak s, bez pravljenja novog String-a gde izvor to dozvoljava
+    default boolean textEquals(int from, int to, String s) { return text(from, to).equals(s); }
+
+    // prvih najviše max znakova teksta [from, to) u dst; vraća njihov broj; bez novog String-a gde izvor to dozvoljava
+    default int getChars(int from, int to, char[] dst, int max) {
+        String s = text(from, to);
+        int n = Math.min(s.length(), max);
+        s.getChars(0, n, dst, 0);
+        return n;
+    }
+}
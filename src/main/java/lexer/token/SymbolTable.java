@@ -0,0 +1,62 @@
+package lexer.token;
+
+import java.util.Arrays;
+
+// imena identifikatora jedne kompilacije: svako različito ime se čuva jednom i dobija gust int id (0, 1, 2, ...)
+// nije thread-safe; paralelni delovi imaju svoje tabele koje se posle spajaju (vidi TokenBuffer.remapSymbols)
+public final class SymbolTable {
+    private String[] names = new String[64];
+    private int[] hashes = new int[64];
+    // otvoreno adresiranje: id + 1, 0 je prazno mesto
+    private int[] slots = new int[128];
+    private int size = 0;
+
+    public int size() { return size; }
+
+    public String name(int id) { return names[id]; }
+
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id < 0) return add(i, name, hash);
+            if (hashes[id] == hash && names[id].equals(name)) return id;
+        }
+    }
+
+    // hash mora biti String.hashCode() teksta [from, to); novi String se pravi samo za ime koje još ne postoji
+    public int intern(SourceText src, int from, int to, int hash) {
+        int mask = slots.length - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id < 0) return add(i, src.text(from, to), hash);
+            if (hashes[id] == hash && src.textEquals(from, to, names[id])) return id;
+        }
+    }
+
+    private int add(int slot, String name, int hash) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = mix(hashes[id]) & mask;
+            while (slots[i] != 0) i = (i + 1) & mask;
+            slots[i] = id + 1;
+        }
+    }
+
+    private static int mix(int h) { return h ^ (h >>> 16); }
+}
@@ -5,8 +5,13 @@ public class Token {
     public final String lexeme;
     public final Object literal;
     public final int line, colStart, colEnd;
+    // id imena u SymbolTable za IDENT, inače -1
+    public final int symbol;
     public Token(TokenType t, String lx, Object lit, int line, int cs, int ce) {
-        this.type=t; this.lexeme=lx; this.literal=lit; this.line=line; this.colStart=cs; this.colEnd=ce;
+        this(t, lx, lit, line, cs, ce, -1);
+    }
+    public Token(TokenType t, String lx, Object lit, int line, int cs, int ce, int symbol) {
+        this.type=t; this.lexeme=lx; this.literal=lit; this.line=line; this.colStart=cs; this.colEnd=ce; this.symbol=symbol;
     }
     public String toString(){
         return (type+" '"+lexeme+"' at line: "+line+", column: "+colStart).
@@ -0,0 +1,537 @@
+package lexer.token;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public final class TokenBuffer implements Iterable<Token> {
+
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final String[] FIXED = new String[TYPES.length];
+
+    static {
+        for (TokenType t : TYPES) FIXED[t.ordinal()] = fixedLexeme(t);
+    }
+
+    // kada izvor nije sačuvan (streaming), tekst promenljivih tokena se čuva ovde
+    private SourceText source;
+    private String[] texts;
+    // imena IDENT tokena; id je u values
+    private final SymbolTable symbols;
+
+    private int[] types;
+    private int[] starts;
+    private int[] ends;
+    private int[] lines;
+    private int[] colStarts;
+    private int[] colEnds;
+    // vrednost brojčanih literala: long, za DOUBLE_LIT bitovi double-a, za IDENT id simbola
+    private long[] values;
+    private int size = 0;
+    // posle replace(): tokeni od gapAt naviše stoje u nizovima iza rupe od gapLen mesta, a offset i linija su im
+    // relativni prema tailOffset i tailLine, pa izmena u sredini ne pomera i ne menja rep; bez rupe je gapAt MAX_VALUE
+    private int gapAt = Integer.MAX_VALUE, gapLen;
+    private int tailOffset, tailLine;
+
+    public TokenBuffer(SourceText source) {
+        this(source, 256);
+    }
+
+    public TokenBuffer(SourceText source, int capacity) {
+        this(source, null, capacity);
+    }
+
+    public TokenBuffer(SourceText source, SymbolTable symbols, int capacity) {
+        this.source = source;
+        this.symbols = symbols;
+        int cap = Math.max(capacity, 16);
+        types = new int[cap];
+        starts = new int[cap];
+        ends = new int[cap];
+        lines = new int[cap];
+        colStarts = new int[cap];
+        colEnds = new int[cap];
+        values = new long[cap];
+        if (source == null) texts = new String[cap];
+    }
+
+    public static TokenBuffer of(List<Token> tokens) {
+        TokenBuffer b = new TokenBuffer(null, tokens.size());
+        for (Token t : tokens) {
+            long value = 0;
+            if (t.type == TokenType.IDENT) {
+                value = t.symbol;
+            } else if (t.literal instanceof Number n) {
+                value = t.type == TokenType.DOUBLE_LIT ? Double.doubleToRawLongBits(n.doubleValue()) : n.longValue();
+            }
+            b.add(t.type, 0, 0, t.line, t.colStart, t.colEnd, t.lexeme, value);
+        }
+        return b;
+    }
+
+    public static boolean hasOwnText(TokenType type) { return FIXED[type.ordinal()] == null; }
+
+    public boolean storesText() { return source == null; }
+
+    public SymbolTable symbols() { return symbols; }
+
+    public int add(TokenType type, int start, int end, int line, int colStart, int colEnd, String text) {
+        return add(type, start, end, line, colStart, colEnd, text, 0L);
+    }
+
+    public int add(TokenType type, int start, int end, int line, int colStart, int colEnd, String text, long value) {
+        closeGap();
+        if (size == types.length) grow();
+        int i = size++;
+        types[i] = type.ordinal();
+        starts[i] = start;
+        ends[i] = end;
+        lines[i] = line;
+        colStarts[i] = colStart;
+        colEnds[i] = colEnd;
+        values[i] = value;
+        if (texts != null && FIXED[types[i]] == null) texts[i] = text;
+        return i;
+    }
+
+    public int size() { return size; }
+
+    // dodaje tokene [from, to) iz drugog bafera; offseti i pozicije se kopiraju kakvi jesu
+    public void append(TokenBuffer other, int from, int to) {
+        closeGap();
+        if (other.gapAt != Integer.MAX_VALUE) {
+            for (int i = from; i < to; i++) {
+                add(other.type(i), other.start(i), other.end(i), other.line(i), other.colStart(i), other.colEnd(i),
+                        hasOwnText(other.type(i)) ? other.lexeme(i) : null, other.value(i));
+            }
+            return;
+        }
+        int n = to - from;
+        while (size + n > types.length) grow();
+        System.arraycopy(other.types, from, types, size, n);
+        System.arraycopy(other.starts, from, starts, size, n);
+        System.arraycopy(other.ends, from, ends, size, n);
+        System.arraycopy(other.lines, from, lines, size, n);
+        System.arraycopy(other.colStarts, from, colStarts, size, n);
+        System.arraycopy(other.colEnds, from, colEnds, size, n);
+        System.arraycopy(other.values, from, values, size, n);
+        if (texts != null) {
+            for (int i = 0; i < n; i++) {
+                int t = other.types[from + i];
+                texts[size + i] = FIXED[t] == null ? other.lexeme(from + i) : null;
+            }
+        }
+        size += n;
+    }
+
+    // zamenjuje tokene [from, to) svim tokenima iz other i pomera rep za offsetDelta i lineDelta
+    // rep ostaje gde jeste: pomera se rupa (koliko je izmena udaljena od prethodne), a pomeraj ide u bazu repa
+    public void replace(int from, int to, TokenBuffer other, int offsetDelta, int lineDelta) {
+        if (gapAt == Integer.MAX_VALUE) {
+            gapAt = size;
+            gapLen = types.length - size;
+        }
+        moveGap(to);
+        if (texts != null) Arrays.fill(texts, from, to, null);
+        gapLen += to - from;
+        gapAt = from;
+        size -= to - from;
+        tailOffset += offsetDelta;
+        tailLine += lineDelta;
+
+        int n = other.size;
+        if (gapLen < n) growGap(n);
+        for (int j = 0; j < n; j++) {
+            int i = from + j;
+            types[i] = other.type(j).ordinal();
+            starts[i] = other.start(j);
+            ends[i] = other.end(j);
+            lines[i] = other.line(j);
+            colStarts[i] = other.colStart(j);
+            colEnds[i] = other.colEnd(j);
+            values[i] = other.value(j);
+            if (texts != null && FIXED[types[i]] == null) texts[i] = other.lexeme(j);
+        }
+        gapAt += n;
+        gapLen -= n;
+        size += n;
+    }
+
+    // rupa ispred tokena k; tokeni koji prelaze u rep dobijaju relativne pozicije, a oni koji izlaze iz njega apsolutne
+    private void moveGap(int k) {
+        if (k < gapAt) {
+            int n = gapAt - k;
+            move(k, k + gapLen, n);
+            for (int i = k + gapLen; i < k + gapLen + n; i++) {
+                starts[i] -= tailOffset;
+                ends[i] -= tailOffset;
+                lines[i] -= tailLine;
+            }
+        } else if (k > gapAt) {
+            int n = k - gapAt;
+            move(gapAt + gapLen, gapAt, n);
+            for (int i = gapAt; i < gapAt + n; i++) {
+                starts[i] += tailOffset;
+                ends[i] += tailOffset;
+                lines[i] += tailLine;
+            }
+        }
+        gapAt = k;
+    }
+
+    private void move(int from, int to, int n) {
+        System.arraycopy(types, from, types, to, n);
+        System.arraycopy(starts, from, starts, to, n);
+        System.arraycopy(ends, from, ends, to, n);
+        System.arraycopy(lines, from, lines, to, n);
+        System.arraycopy(colStarts, from, colStarts, to, n);
+        System.arraycopy(colEnds, from, colEnds, to, n);
+        System.arraycopy(values, from, values, to, n);
+        if (texts != null) System.arraycopy(texts, from, texts, to, n);
+    }
+
+    // bar need mesta u rupi; rep ide na kraj većih nizova
+    private void growGap(int need) {
+        int cap = Math.max(types.length + (types.length >> 1), size + need + 16);
+        int tail = size - gapAt;
+        int at = cap - tail;
+        types = regap(types, cap, at, tail);
+        starts = regap(starts, cap, at, tail);
+        ends = regap(ends, cap, at, tail);
+        lines = regap(lines, cap, at, tail);
+        colStarts = regap(colStarts, cap, at, tail);
+        colEnds = regap(colEnds, cap, at, tail);
+        long[] v = Arrays.copyOf(values, cap);
+        System.arraycopy(values, gapAt + gapLen, v, at, tail);
+        values = v;
+        if (texts != null) {
+            String[] t = Arrays.copyOf(texts, cap);
+            System.arraycopy(texts, gapAt + gapLen, t, at, tail);
+            Arrays.fill(t, gapAt, at, null);
+            texts = t;
+        }
+        gapLen = cap - size;
+    }
+
+    private int[] regap(int[] a, int cap, int at, int tail) {
+        int[] b = Arrays.copyOf(a, cap);
+        System.arraycopy(a, gapAt + gapLen, b, at, tail);
+        return b;
+    }
+
+    // svi tokeni opet redom i sa apsolutnim pozicijama, za operacije koje rade nad celim nizovima
+    private void closeGap() {
+        if (gapAt == Integer.MAX_VALUE) return;
+        moveGap(size);
+        gapAt = Integer.MAX_VALUE;
+        gapLen = 0;
+        tailOffset = 0;
+        tailLine = 0;
+    }
+
+    // id-evi simbola IDENT tokena [from, to) se prevode kroz ids, npr. posle spajanja sa baferom druge tabele
+    public void remapSymbols(int from, int to, int[] ids) {
+        closeGap();
+        int ident = TokenType.IDENT.ordinal();
+        for (int i = from; i < to; i++) {
+            if (types[i] == ident) values[i] = ids[(int) values[i]];
+        }
+    }
+
+    // izvor posle izmene; offseti tokena moraju već odgovarati novom tekstu
+    public void rebind(SourceText source) {
+        if (this.source == null || source == null) throw new IllegalStateException("Token buffer does not reference source text");
+        this.source = source;
+    }
+
+    public void clear() {
+        if (texts != null) Arrays.fill(texts, null);
+        size = 0;
+        gapAt = Integer.MAX_VALUE;
+        gapLen = 0;
+        tailOffset = 0;
+        tailLine = 0;
+    }
+
+    // binarni zapis (npr. za keš): imena iz tabele simbola, pa za svaki token tip, pozicije kao varint razlike,
+    // vrednost i tekst ako ga tip ima; pročitani bafer čuva tekst sam, bez izvora
+    public void writeTo(DataOutput out) throws IOException {
+        closeGap();
+        out.writeInt(size);
+        out.writeInt(symbols == null ? -1 : symbols.size());
+        if (symbols != null) {
+            for (int id = 0; id < symbols.size(); id++) writeText(out, symbols.name(id));
+        }
+        int prevEnd = 0, prevLine = 0;
+        for (int i = 0; i < size; i++) {
+            out.writeByte(types[i]);
+            writeVar(out, zigzag(starts[i] - prevEnd));
+            writeVar(out, zigzag(ends[i] - starts[i]));
+            writeVar(out, zigzag(lines[i] - prevLine));
+            writeVar(out, colStarts[i]);
+            writeVar(out, zigzag(colEnds[i] - colStarts[i]));
+            writeVar(out, zigzag(values[i]));
+            if (FIXED[types[i]] == null && !(symbols != null && types[i] == TokenType.IDENT.ordinal())) {
+                writeText(out, lexeme(i));
+            }
+            prevEnd = ends[i];
+            prevLine = lines[i];
+        }
+    }
+
+    // čita zapis writeTo od pozicije in i ostavlja poziciju iza njega
+    public static TokenBuffer readFrom(ByteBuffer in) {
+        int n = in.getInt();
+        int symbolCount = in.getInt();
+        SymbolTable symbols = null;
+        if (symbolCount >= 0) {
+            symbols = new SymbolTable();
+            for (int id = 0; id < symbolCount; id++) symbols.intern(readText(in));
+        }
+        TokenBuffer b = new TokenBuffer(null, symbols, n);
+        int prevEnd = 0, prevLine = 0;
+        for (int i = 0; i < n; i++) {
+            int type = in.get() & 0xFF;
+            int start = prevEnd + (int) unzigzag(readVar(in));
+            int end = start + (int) unzigzag(readVar(in));
+            int line = prevLine + (int) unzigzag(readVar(in));
+            int colStart = (int) readVar(in);
+            int colEnd = colStart + (int) unzigzag(readVar(in));
+            long value = unzigzag(readVar(in));
+            String text = null;
+            if (FIXED[type] == null && !(symbols != null && type == TokenType.IDENT.ordinal())) text = readText(in);
+            b.add(TYPES[type], start, end, line, colStart, colEnd, text, value);
+            prevEnd = end;
+            prevLine = line;
+        }
+        return b;
+    }
+
+    private static void writeText(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVar(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVar(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVar(DataOutput out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVar(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+    }
+
+    private static long zigzag(long v) { return (v << 1) ^ (v >> 63); }
+
+    private static long unzigzag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    public TokenStream stream() { return new Cursor(0, size - 1); }
+
+    // tokeni [from, to); na to parser vidi EOF, kao na kraju fajla
+    public TokenStream stream(int from, int to) { return new Cursor(from, to); }
+
+    // mesto tokena i u nizovima
+    private int at(int i) { return i < gapAt ? i : i + gapLen; }
+
+    public TokenType type(int i) { return TYPES[types[at(i)]]; }
+    public int start(int i) { return i < gapAt ? starts[i] : starts[i + gapLen] + tailOffset; }
+    public int end(int i) { return i < gapAt ? ends[i] : ends[i + gapLen] + tailOffset; }
+    public int line(int i) { return i < gapAt ? lines[i] : lines[i + gapLen] + tailLine; }
+    public int colStart(int i) { return colStarts[at(i)]; }
+    public int colEnd(int i) { return colEnds[at(i)]; }
+    public long value(int i) { return values[at(i)]; }
+    public double doubleValue(int i) { return Double.longBitsToDouble(values[at(i)]); }
+
+    public String lexeme(int i) {
+        int k = at(i);
+        String fixed = FIXED[types[k]];
+        if (fixed != null) return fixed;
+        if (symbols != null && types[k] == TokenType.IDENT.ordinal()) return symbols.name((int) values[k]);
+        if (texts != null) return texts[k];
+        TokenType t = TYPES[types[k]];
+        if (t == TokenType.STRING_LIT || t == TokenType.CHAR_LIT) {
+            return source.text(start(i) + 1, end(i) - 1);
+        }
+        return source.text(start(i), end(i));
+    }
+
+    // prvih najviše max znakova lexeme(i) u dst, bez novog String-a kada tekst dolazi iz izvora; vraća njihov broj
+    public int lexemeChars(int i, char[] dst, int max) {
+        int k = at(i);
+        if (FIXED[types[k]] != null || texts != null || symbols != null && types[k] == TokenType.IDENT.ordinal()) {
+            String s = lexeme(i);
+            int n = Math.min(s.length(), max);
+            s.getChars(0, n, dst, 0);
+            return n;
+        }
+        TokenType t = TYPES[types[k]];
+        if (t == TokenType.STRING_LIT || t == TokenType.CHAR_LIT) {
+            return source.getChars(start(i) + 1, end(i) - 1, dst, max);
+        }
+        return source.getChars(start(i), end(i), dst, max);
+    }
+
+    public Object literal(int i) {
+        int k = at(i);
+        return switch (TYPES[types[k]]) {
+            case INT_LIT -> Integer.valueOf((int) values[k]);
+            case HEX_LIT, OCT_LIT -> Long.valueOf(values[k]);
+            case DOUBLE_LIT -> Double.valueOf(Double.longBitsToDouble(values[k]));
+            case STRING_LIT -> lexeme(i);
+            case CHAR_LIT -> (int) lexeme(i).charAt(0);
+            default -> null;
+        };
+    }
+
+    public Token get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        int k = at(i);
+        int symbol = types[k] == TokenType.IDENT.ordinal() ? (int) values[k] : -1;
+        return new Token(TYPES[types[k]], lexeme(i), literal(i), line(i), colStarts[k], colEnds[k], symbol);
+    }
+
+    public List<Token> toList() {
+        List<Token> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) out.add(get(i));
+        return out;
+    }
+
+    @Override
+    public Iterator<Token> iterator() {
+        return new Iterator<>() {
+            private int i = 0;
+            @Override public boolean hasNext() { return i < size; }
+            @Override public Token next() {
+                if (i >= size) throw new NoSuchElementException();
+                return get(i++);
+            }
+        };
+    }
+
+    private final class Cursor implements TokenStream {
+        private int current;
+        // na end se vidi EOF; za ceo bafer to je pravi EOF token
+        private final int end;
+
+        Cursor(int from, int end) {
+            this.current = from;
+            this.end = end;
+        }
+
+        private TokenType at(int i) { return i < end ? type(i) : TokenType.EOF; }
+
+        @Override public TokenType peekType() { return at(current); }
+        @Override public TokenType peekNextType() { return at(Math.min(current + 1, end)); }
+        @Override public Token peek() { return tokenAt(current); }
+        @Override public Token peekNext() { return tokenAt(Math.min(current + 1, end)); }
+        @Override public Token previous() { return get(current - 1); }
+
+        private Token tokenAt(int i) {
+            if (i < end) return get(i);
+            if (end == size - 1) return get(end);
+            return new Token(TokenType.EOF, "", null, line(end), colStart(end), colStart(end));
+        }
+
+        @Override
+        public Token advance() {
+            if (at(current) == TokenType.EOF) return tokenAt(current);
+            return get(current++);
+        }
+
+        @Override
+        public void skip() {
+            if (at(current) != TokenType.EOF) current++;
+        }
+
+        @Override public int position() { return current; }
+    }
+
+    private void grow() {
+        int cap = types.length + (types.length >> 1);
+        types = Arrays.copyOf(types, cap);
+        starts = Arrays.copyOf(starts, cap);
+        ends = Arrays.copyOf(ends, cap);
+        lines = Arrays.copyOf(lines, cap);
+        colStarts = Arrays.copyOf(colStarts, cap);
+        colEnds = Arrays.copyOf(colEnds, cap);
+        values = Arrays.copyOf(values, cap);
+        if (texts != null) texts = Arrays.copyOf(texts, cap);
+    }
+
+    private static String fixedLexeme(TokenType t) {
+        return switch (t) {
+            case BROJ_ELIXIRA -> "brojElixira";
+            case SLOVO_KARTICE -> "slovoKartice";
+            case DOUBLE_ELIXIR -> "doubleElixir";
+            case IME_KARTICE -> "imeKartice";
+            case BATTLE -> "battle";
+            case KRAJ_BORBE -> "krajBorbe";
+            case UCITAJ_KARTICU -> "ucitajKarticu";
+            case ISPISI_KARTICU -> "ispisiKarticu";
+            case LEADER -> "leader";
+            case ELDER -> "elder";
+            case MEMBER -> "member";
+            case CYCLE -> "cycle";
+            case BEZ_ELIXIRA -> "bezElixira";
+            case BLOCK_START -> "#";
+            case BLOCK_END -> "$";
+            case LPAREN -> "(";
+            case RPAREN -> ")";
+            case LBRACKET -> "[";
+            case RBRACKET -> "]";
+            case LBRACE_TERNARY -> "{";
+            case RBRACE_TERNARY -> "}";
+            case COMMA -> ",";
+            case SEMICOLON -> ";";
+            case ASSIGN -> "=";
+            case ADD -> "+";
+            case SUB -> "-";
+            case MULTIPLY -> "*";
+            case DIVIDE -> "/";
+            case PERCENT -> "%";
+            case LOG_AND -> "&";
+            case LOG_OR -> "|";
+            case LOG_NOT -> "!";
+            case QUOTE -> "\"";
+            case APOSTROPHE -> "'";
+            case INCREMENT -> "++";
+            case DECREMENT -> "--";
+            case PLUS_ASSIGN -> "+=";
+            case MINUS_ASSIGN -> "-=";
+            case MULT_ASSIGN -> "*=";
+            case DIV_ASSIGN -> "/=";
+            case LT -> "<";
+            case LE -> "<=";
+            case GT -> ">";
+            case GE -> ">=";
+            case EQ -> "==";
+            case NEQ -> "!=";
+            case TERNARY_QMARK -> "?";
+            case TERNARY_COLON -> ":";
+            case NEWLINE -> "\n";
+            case EOF -> "\0";
+            default -> null;
+        };
+    }
+}
@@ -1,54 +1,174 @@
 package lexer.token;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
 
 public final class TokenFormatter {
 
-    private static String escape(String s) {
-        return s.replace("\n", "\\n").replace("\0", "\\0");
+    // širine kolona; duži sadržaj se seče
+    private static final int TYPE_W = 10, LEXEME_W = 18, LITERAL_W = 11, LINE_W = 9, COLS_W = 12;
+    private static final int ROW = 1 + TYPE_W + 1 + LEXEME_W + 1 + LITERAL_W + 1 + LINE_W + 1 + COLS_W + 1;
+
+    public static String format(Token t) {
+        Row row = new Row();
+        row.token(t);
+        return new String(row.buf, 0, ROW);
     }
 
-    private static String center(String s, int width) {
-        if (s.length() >= width) return s.substring(0, width);
-        int pad = width - s.length();
-        int left = pad / 2;
-        int right = pad - left;
-        return " ".repeat(left) + s + " ".repeat(right);
+    public static String formatList(Iterable<Token> tokens) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeTo(sb, tokens);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return sb.toString();
     }
 
-    public static String format(Token t) {
-        String typeStr = center(String.valueOf(t.type), 10);
-        String lexStr = center("'" + escape(t.lexeme) + "'", 18);
-        String litStr = center(t.literal == null ? "N/A" : t.literal.toString(), 11);
-        String lineStr = center("line " + t.line, 9);
-        String colStr = center("col " + t.colStart + "-" + t.colEnd, 12);
+    // ista tabela kao formatList, red po red u out, bez novog reda posle poslednje linije
+    // red se slaže u jedan char[] koji se ponovo koristi; za TokenBuffer se ne prave ni Token objekti
+    public static void writeTo(Appendable out, Iterable<Token> tokens) throws IOException {
+        Row row = new Row();
+        row.separator();
+        row.emit(out, true);
+        row.header();
+        row.emit(out, true);
+        row.separator();
+        row.emit(out, true);
 
-        return String.format("|%s|%s|%s|%s|%s|", typeStr, lexStr, litStr, lineStr, colStr);
+        if (tokens instanceof TokenBuffer b) {
+            for (int i = 0; i < b.size(); i++) {
+                row.token(b, i);
+                row.emit(out, true);
+            }
+        } else {
+            for (Token t : tokens) {
+                row.token(t);
+                row.emit(out, true);
+            }
+        }
+
+        row.separator();
+        row.emit(out, false);
     }
 
-    public static String formatList(List<Token> tokens) {
-        StringBuilder sb = new StringBuilder();
+    private static final class Row {
+        final char[] buf = new char[ROW + 1];
+        int at;
+        // sadržaj ćelije pre centriranja; n je njegova cela dužina, čuva se samo onoliko koliko staje u kolonu
+        final char[] cell = new char[LEXEME_W];
+        int n;
+        final StringBuilder num = new StringBuilder();
+        // početak lexeme-a: dovoljno znakova da se popuni kolona i vidi da li je sečena
+        final char[] raw = new char[LEXEME_W + 1];
+        int rawLen;
 
-        String header = String.format(
-            "|%s|%s|%s|%s|%s|",
-            center("TYPE", 10),
-            center("LEXEME", 18),
-            center("LITERAL", 11),
-            center("LINE", 9),
-            center("COLUMNS", 12)
-        );
+        void separator() {
+            for (int i = 0; i < ROW; i++) buf[i] = '-';
+        }
 
-        String separator = "-".repeat(header.length());
+        void header() {
+            at = 0;
+            buf[at++] = '|';
+            text("TYPE"); close(TYPE_W);
+            text("LEXEME"); close(LEXEME_W);
+            text("LITERAL"); close(LITERAL_W);
+            text("LINE"); close(LINE_W);
+            text("COLUMNS"); close(COLS_W);
+        }
 
-        sb.append(separator).append("\n");
-        sb.append(header).append("\n");
-        sb.append(separator).append("\n");
+        void token(Token t) {
+            at = 0;
+            buf[at++] = '|';
+            text(t.type.name()); close(TYPE_W);
+            rawLen = Math.min(t.lexeme.length(), raw.length);
+            t.lexeme.getChars(0, rawLen, raw, 0);
+            lexeme(); close(LEXEME_W);
+            Object lit = t.literal;
+            if (lit == null) text("N/A");
+            else if (lit instanceof Integer || lit instanceof Long) number(((Number) lit).longValue());
+            else if (lit instanceof Double d) { num.setLength(0); num.append(d.doubleValue()); text(num); }
+            else text(lit.toString());
+            close(LITERAL_W);
+            position(t.line, t.colStart, t.colEnd);
+        }
 
-        for (Token t : tokens) {
-            sb.append(format(t)).append("\n");
+        // isto kao token(b.get(i)), sa literalom kao TokenBuffer.literal; tekst se kopira iz bafera, bez String-a
+        void token(TokenBuffer b, int i) {
+            at = 0;
+            buf[at++] = '|';
+            TokenType type = b.type(i);
+            rawLen = b.lexemeChars(i, raw, raw.length);
+            text(type.name()); close(TYPE_W);
+            lexeme(); close(LEXEME_W);
+            switch (type) {
+                case INT_LIT -> number((int) b.value(i));
+                case HEX_LIT, OCT_LIT -> number(b.value(i));
+                case DOUBLE_LIT -> { num.setLength(0); num.append(b.doubleValue(i)); text(num); }
+                case STRING_LIT -> { for (int k = 0; k < rawLen && n <= LEXEME_W; k++) put(raw[k]); }
+                case CHAR_LIT -> number(raw[0]);
+                default -> text("N/A");
+            }
+            close(LITERAL_W);
+            position(b.line(i), b.colStart(i), b.colEnd(i));
         }
 
-        sb.append(separator);
-        return sb.toString();
+        private void position(int line, int colStart, int colEnd) {
+            text("line "); number(line); close(LINE_W);
+            text("col "); number(colStart); put('-'); number(colEnd); close(COLS_W);
+        }
+
+        private void lexeme() {
+            put('\'');
+            for (int i = 0; i < rawLen; i++) {
+                char c = raw[i];
+                if (c == '\n') { put('\\'); put('n'); }
+                else if (c == '\0') { put('\\'); put('0'); }
+                else put(c);
+                if (n > LEXEME_W) break;
+            }
+            put('\'');
+        }
+
+        private void number(long v) {
+            num.setLength(0);
+            num.append(v);
+            text(num);
+        }
+
+        private void text(CharSequence s) {
+            for (int i = 0; i < s.length() && n <= LEXEME_W; i++) put(s.charAt(i));
+        }
+
+        private void put(char c) {
+            if (n < cell.length) cell[n] = c;
+            n++;
+        }
+
+        // centrira ćeliju u širinu kao ranije center(): levo pola razmaka, desno ostatak
+        private void close(int width) {
+            if (n >= width) {
+                System.arraycopy(cell, 0, buf, at, width);
+                at += width;
+            } else {
+                int left = (width - n) / 2;
+                int right = width - n - left;
+                for (int i = 0; i < left; i++) buf[at++] = ' ';
+                System.arraycopy(cell, 0, buf, at, n);
+                at += n;
+                for (int i = 0; i < right; i++) buf[at++] = ' ';
+            }
+            buf[at++] = '|';
+            n = 0;
+        }
+
+        void emit(Appendable out, boolean newline) throws IOException {
+            int len = ROW;
+            if (newline) buf[len++] = '\n';
+            if (out instanceof Writer w) w.write(buf, 0, len);
+            else if (out instanceof StringBuilder sb) sb.append(buf, 0, len);
+            else out.append(CharBuffer.wrap(buf, 0, len));
+        }
     }
 }
@@ -0,0 +1,19 @@
+package lexer.token;
+
+// izvor tokena na zahtev; parser vidi samo prozor previous/peek/peekNext
+public interface TokenStream {
+    TokenType peekType();
+    TokenType peekNextType();
+    Token peek();
+    Token peekNext();
+    Token previous();
+
+    // prelazi preko tekućeg tokena i vraća ga; na EOF ostaje na mestu
+    Token advance();
+
+    // isto kao advance(), bez pravljenja Token objekta gde izvor to dozvoljava
+    default void skip() { advance(); }
+
+    // indeks tekućeg tokena u baferu; -1 kada izvor nema bafer
+    default int position() { return -1; }
+}
@@ -93,6 +93,8 @@ package lexer.token;
         NEWLINE,
         EOF,
 
+        ERROR,
+
 
 
     }
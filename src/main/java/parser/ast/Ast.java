@@ -2,6 +2,7 @@ package parser.ast;
 
 import java.util.List;
 import java.util.ArrayList;
+import lexer.token.SymbolTable;
 import lexer.token.Token;
 
 
@@ -12,10 +13,21 @@ public final class Ast {
 
         public final boolean hasBattleMain;
         public final List<TopItem> items;
+        // imena za id-eve u Token.symbol; null ako parser nije dobio tabelu
+        public final SymbolTable symbols;
+        // broj slotova globalnog okvira; postavlja Resolver
+        public int frameSize;
+        // najveća dubina blokova i izraza van funkcija; postavlja Resolver
+        public int depth;
 
         public Program(boolean hasBattleMain, List<TopItem> items) {
+            this(hasBattleMain, items, null);
+        }
+
+        public Program(boolean hasBattleMain, List<TopItem> items, SymbolTable symbols) {
             this.hasBattleMain = hasBattleMain;
             this.items = items;
+            this.symbols = symbols;
         }
     }
 
@@ -39,6 +51,10 @@ public final class Ast {
         public final List<Param> params;
         public final Type returnType;
         public final List<Stmt> body;
+        // broj slotova okvira: parametri pa lokalne promenljive, slotovi zatvorenih blokova se ponovo koriste
+        public int frameSize;
+        // najveća dubina ugnežđenih blokova i izraza u telu; postavlja Resolver, Interpreter po njoj ograničava pozive
+        public int depth;
 
         public FuncDef(Token name, List<Param> params, Type returnType, List<Stmt> body) {
             this.name = name;
@@ -85,6 +101,9 @@ public final class Ast {
         }
         public abstract <R> R accept(Visitor<R> v);
 
+        // tip izraza posle Resolver-a; null ako izraz nije proveren ili ima grešku
+        public Type type;
+
         public static final class LiteralInt extends Expr {
             public final Token token;
             public final long value;
@@ -115,6 +134,8 @@ public final class Ast {
 
         public static final class Ident extends Expr {
             public final Token name;
+            // depth: 0 okvir funkcije, 1 globalni okvir; -1 dok ime nije razrešeno
+            public int depth = -1, slot = -1;
             public Ident(Token name) { this.name = name; }
             @Override public <R> R accept(Visitor<R> v) { return v.visitIdent(this); }
         }
@@ -123,6 +144,7 @@ public final class Ast {
         public static final class Index extends Expr {
             public final Token name;
             public final List<Expr> indices;
+            public int depth = -1, slot = -1;
             public Index(Token name, List<Expr> indices) { this.name = name; this.indices = indices; }
             @Override public <R> R accept(Visitor<R> v) { return v.visitIndex(this); }
         }
@@ -138,6 +160,8 @@ public final class Ast {
             public final Token callTok;
             public final Token callee;
             public final List<Expr> args;
+            // funkcija korisnika posle Resolver-a; null za ugrađene
+            public FuncDef target;
             public Call(Token callTok, Token callee, List<Expr> args) {
                 this.callTok = callTok; this.callee = callee; this.args = args;
             }
@@ -187,8 +211,15 @@ public final class Ast {
             public final Type type;
             public final List<Expr> dims;
             public final List<Token> names;
+            // null bez inicijalizatora
+            public final Expr init;
+            // slot svakog imena, kao Ident.slot
+            public int[] slots;
             public VarDecl(Type type, List<Expr> dims, List<Token> names) {
-                this.type = type; this.dims = dims; this.names = names;
+                this(type, dims, names, null);
+            }
+            public VarDecl(Type type, List<Expr> dims, List<Token> names, Expr init) {
+                this.type = type; this.dims = dims; this.names = names; this.init = init;
             }
             @Override public <R> R accept(Visitor<R> v) { return v.visitVarDecl(this); }
         }
@@ -197,6 +228,9 @@ public final class Ast {
         public static final class LValue {
             public final Token name;
             public final List<Expr> indices;
+            public int depth = -1, slot = -1;
+            // tip cilja posle Resolver-a
+            public Type type;
             public LValue(Token name, List<Expr> indices) { this.name = name; this.indices = indices; }
         }
 
@@ -204,7 +238,10 @@ public final class Ast {
         public static final class Assign extends Stmt {
             public final Expr left;
             public final LValue lvalue;
-            public Assign(Expr left, LValue lvalue) { this.left = left; this.lvalue = lvalue; }
+            // tip iz init dela cycle() koji deklariše promenljivu; inače null
+            public final Type declared;
+            public Assign(Expr left, LValue lvalue) { this(left, lvalue, null); }
+            public Assign(Expr left, LValue lvalue, Type declared) { this.left = left; this.lvalue = lvalue; this.declared = declared; }
             @Override public <R> R accept(Visitor<R> v) { return v.visitAssign(this); }
         }
 
@@ -0,0 +1,299 @@
+package parser.ast;
+
+import lexer.token.SymbolTable;
+import lexer.token.Token;
+import lexer.token.TokenType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import static parser.ast.BinaryAstWriter.*;
+
+// čita format BinaryAstWriter-a iz ByteBuffer-a (npr. mapiranog fajla); stavka se gradi tek kada se prvi put traži,
+// a stringovi i imena tek kada ih neka stavka koristi
+// nije thread-safe
+public final class BinaryAstReader {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final Ast.Type.Kind[] TYPE_KINDS = Ast.Type.Kind.values();
+
+    private final ByteBuffer buf;
+    private final int flags;
+    private final int itemCount;
+    private final int index;
+    private final int poolAt;
+    private final int symbolCount;
+    private final String[] strings;
+    private final Ast.TopItem[] items;
+    private SymbolTable symbols;
+
+    // pozicija čitanja i linija prethodnog tokena
+    private int pos;
+    private int line;
+
+    public BinaryAstReader(ByteBuffer buf) {
+        this.buf = buf;
+        if (buf.limit() < HEADER || buf.getInt(0) != MAGIC) throw new IllegalArgumentException("Nije binarni AST");
+        int version = buf.getInt(4);
+        if (version != VERSION) throw new IllegalArgumentException("Nepodržana verzija binarnog AST-a: " + version);
+        this.flags = buf.getInt(8);
+        this.itemCount = buf.getInt(12);
+        this.index = buf.getInt(16);
+        this.poolAt = buf.getInt(20);
+        this.strings = new String[buf.getInt(poolAt)];
+        this.symbolCount = buf.getInt(poolAt + 4);
+        this.items = new Ast.TopItem[itemCount];
+    }
+
+    // fajl se mapira samo za čitanje; mapiranje ostaje važeće i posle zatvaranja kanala
+    public static BinaryAstReader open(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new BinaryAstReader(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    public boolean hasBattleMain() { return (flags & FLAG_BATTLE_MAIN) != 0; }
+
+    public int itemCount() { return itemCount; }
+
+    // lista stavki se puni dok se obilazi
+    public Ast.Program program() {
+        List<Ast.TopItem> list = new AbstractList<>() {
+            @Override public Ast.TopItem get(int i) { return item(i); }
+            @Override public int size() { return itemCount; }
+        };
+        return new Ast.Program(hasBattleMain(), list, symbols());
+    }
+
+    public Ast.TopItem item(int i) {
+        Ast.TopItem it = items[i];
+        if (it == null) {
+            pos = buf.getInt(index + 4 * i);
+            line = 0;
+            it = items[i] = item();
+        }
+        return it;
+    }
+
+    // ime funkcije bez čitanja ostatka stavke; null za stavku koja nije funkcija
+    public String itemName(int i) {
+        pos = buf.getInt(index + 4 * i);
+        if (buf.get(pos++) != FUNC) return null;
+        line = 0;
+        return token().lexeme;
+    }
+
+    // null ako pisac nije imao tabelu
+    public SymbolTable symbols() {
+        if (symbols == null && (flags & FLAG_SYMBOLS) != 0) {
+            symbols = new SymbolTable();
+            for (int id = 0; id < symbolCount; id++) symbols.intern(string(id));
+        }
+        return symbols;
+    }
+
+    private Ast.TopItem item() {
+        return switch (buf.get(pos++)) {
+            case FUNC -> {
+                Token name = token();
+                Ast.Type ret = type();
+                int n = varint();
+                List<Ast.Param> params = new ArrayList<>(n);
+                for (int k = 0; k < n; k++) {
+                    Token p = token();
+                    params.add(new Ast.Param(p, type()));
+                }
+                yield new Ast.FuncDef(name, params, ret, stmts());
+            }
+            case TOP_VAR_DECL -> new Ast.TopVarDecl((Ast.Stmt.VarDecl) stmt());
+            case TOP_STMT -> new Ast.TopStmt(stmt());
+            default -> new Ast.TopItem() {};
+        };
+    }
+
+    private Ast.Type type() {
+        int b = buf.get(pos++) & 0xFF;
+        int rank = varint();
+        Token base = (b & 0x80) != 0 ? token() : null;
+        return new Ast.Type(TYPE_KINDS[b & 0x7F], base, rank);
+    }
+
+    private Token token() {
+        return token(null);
+    }
+
+    // value: vrednost brojčanog literala, od nje je Token.literal kao kod leksera
+    private Token token(Number value) {
+        byte b = buf.get(pos++);
+        if (b == NO_TOKEN) return null;
+        TokenType type = TYPES[b];
+        int symbol = -1;
+        String lexeme;
+        if (type == TokenType.IDENT) {
+            symbol = varint() - 1;
+            lexeme = string(symbol >= 0 && (flags & FLAG_SYMBOLS) != 0 ? symbol : varint());
+        } else {
+            lexeme = string(varint());
+        }
+        line += (int) zigzag();
+        int colStart = varint();
+        int colEnd = colStart + varint();
+        return new Token(type, lexeme, literal(type, lexeme, value), line, colStart, colEnd, symbol);
+    }
+
+    private static Object literal(TokenType type, String lexeme, Number value) {
+        return switch (type) {
+            case INT_LIT -> value == null ? null : Integer.valueOf(value.intValue());
+            case HEX_LIT, OCT_LIT -> value == null ? null : Long.valueOf(value.longValue());
+            case DOUBLE_LIT -> value == null ? null : Double.valueOf(value.doubleValue());
+            case STRING_LIT -> lexeme;
+            case CHAR_LIT -> (int) lexeme.charAt(0);
+            default -> null;
+        };
+    }
+
+    private String string(int id) {
+        String s = strings[id];
+        if (s == null) {
+            int at = buf.getInt(poolAt + 8 + 4 * id);
+            int saved = pos;
+            pos = at;
+            int len = varint();
+            byte[] b = new byte[len];
+            buf.get(pos, b);
+            pos = saved;
+            s = strings[id] = new String(b, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    private List<Ast.Stmt> stmts() {
+        int n = varint();
+        List<Ast.Stmt> list = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) list.add(stmt());
+        return list;
+    }
+
+    private List<Ast.Expr> exprs() {
+        int n = varint();
+        List<Ast.Expr> list = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) list.add(expr());
+        return list;
+    }
+
+    private Ast.Stmt stmt() {
+        byte kind = buf.get(pos++);
+        return switch (kind) {
+            case NULL -> null;
+            case VAR_DECL -> {
+                Ast.Type type = type();
+                List<Ast.Expr> dims = exprs();
+                int n = varint();
+                List<Token> names = new ArrayList<>(n);
+                for (int k = 0; k < n; k++) names.add(token());
+                yield new Ast.Stmt.VarDecl(type, dims, names, expr());
+            }
+            case ASSIGN -> {
+                Ast.Expr left = expr();
+                Token name = token();
+                Ast.Stmt.LValue lv = new Ast.Stmt.LValue(name, exprs());
+                yield new Ast.Stmt.Assign(left, lv, buf.get(pos++) != 0 ? type() : null);
+            }
+            case CALL_STMT -> new Ast.Stmt.CallStmt((Ast.Expr.Call) expr());
+            case RETURN -> new Ast.Stmt.Return(expr());
+            case IF -> {
+                Ast.Expr cond = expr();
+                Ast.Stmt.BeginIf.Arm ifArm = new Ast.Stmt.BeginIf.Arm(cond, stmts());
+                int n = varint();
+                List<Ast.Stmt.BeginIf.Arm> elders = new ArrayList<>(n);
+                for (int k = 0; k < n; k++) {
+                    Ast.Expr c = expr();
+                    elders.add(new Ast.Stmt.BeginIf.Arm(c, stmts()));
+                }
+                List<Ast.Stmt> member = buf.get(pos++) != 0 ? stmts() : null;
+                yield new Ast.Stmt.BeginIf(ifArm, elders, member);
+            }
+            case CYCLE -> {
+                Ast.Stmt init = stmt();
+                Ast.Expr cond = expr();
+                Ast.Stmt step = stmt();
+                yield new Ast.Stmt.BeginCycle(init, cond, step, stmts());
+            }
+            default -> throw new IllegalStateException("Neispravan binarni AST: naredba " + kind + " na " + (pos - 1));
+        };
+    }
+
+    private Ast.Expr expr() {
+        byte kind = buf.get(pos++);
+        return switch (kind) {
+            case NULL -> null;
+            case LIT_INT -> {
+                long value = zigzag();
+                yield new Ast.Expr.LiteralInt(token(value), value);
+            }
+            case LIT_DOUBLE -> {
+                double value = Double.longBitsToDouble(buf.getLong(pos));
+                pos += 8;
+                yield new Ast.Expr.LiteralDouble(token(value), value);
+            }
+            case LIT_CHAR -> {
+                Token t = token();
+                yield new Ast.Expr.LiteralChar(t, varint());
+            }
+            case LIT_STRING -> {
+                Token t = token();
+                yield new Ast.Expr.LiteralString(t, string(varint()));
+            }
+            case IDENT -> new Ast.Expr.Ident(token());
+            case INDEX -> {
+                Token name = token();
+                yield new Ast.Expr.Index(name, exprs());
+            }
+            case GROUP -> new Ast.Expr.Grouping(expr());
+            case CALL -> {
+                Token callTok = token();
+                Token callee = token();
+                yield new Ast.Expr.Call(callTok, callee, exprs());
+            }
+            case UNARY -> {
+                Token op = token();
+                yield new Ast.Expr.Unary(op, expr());
+            }
+            case BINARY -> {
+                Ast.Expr left = expr();
+                Token op = token();
+                yield new Ast.Expr.Binary(left, op, expr());
+            }
+            case TERNARY -> {
+                Ast.Expr cond = expr();
+                Ast.Expr then = expr();
+                yield new Ast.Expr.Ternary(cond, then, expr());
+            }
+            default -> throw new IllegalStateException("Neispravan binarni AST: izraz " + kind + " na " + (pos - 1));
+        };
+    }
+
+    private int varint() {
+        return (int) varlong();
+    }
+
+    private long varlong() {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buf.get(pos++);
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+    }
+
+    private long zigzag() {
+        long v = varlong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
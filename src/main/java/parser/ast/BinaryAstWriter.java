@@ -0,0 +1,309 @@
+package parser.ast;
+
+import lexer.token.SymbolTable;
+import lexer.token.Token;
+import lexer.token.TokenType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// binarni zapis Ast.Program-a; čita ga BinaryAstReader
+//
+// zaglavlje (int, big-endian): MAGIC, VERSION, flags, broj stavki, offset indeksa, offset tabele stringova
+// stavke: jedna za drugom; čvor je bajt vrste pa polja, liste su varint dužina pa elementi, 0 je null
+// indeks: int offset svake stavke, da se stavka čita bez čitanja prethodnih
+// tabela stringova: broj, broj imena iz SymbolTable, int offset-i pa UTF-8 tekst (varint dužina + bajtovi);
+// prvih n stringova su imena po id-u, pa je Token.symbol IDENT-a ujedno indeks u tabeli
+// token: bajt tipa (NO_TOKEN za null), za IDENT symbol + 1, indeks teksta (osim za IDENT sa imenom iz tabele),
+// linija kao zigzag razlika od prethodnog tokena iste stavke, colStart, colEnd - colStart
+// Token.literal se računa iz teksta ili iz vrednosti brojčanog literala, koja je zato ispred tokena
+// verzija 2: inicijalizator VarDecl-a i deklarisani tip dodele iz cycle()
+public final class BinaryAstWriter {
+    static final int MAGIC = 0x42474153; // "BGAS"
+    public static final int VERSION = 2;
+    static final int HEADER = 24;
+
+    static final int FLAG_BATTLE_MAIN = 1;
+    static final int FLAG_SYMBOLS = 2;
+
+    static final byte NULL = 0;
+    static final byte NO_TOKEN = -1;
+    static final byte LIT_INT = 1, LIT_DOUBLE = 2, LIT_CHAR = 3, LIT_STRING = 4, IDENT = 5, INDEX = 6,
+            GROUP = 7, CALL = 8, UNARY = 9, BINARY = 10, TERNARY = 11;
+    static final byte VAR_DECL = 12, ASSIGN = 13, CALL_STMT = 14, RETURN = 15, IF = 16, CYCLE = 17;
+    static final byte FUNC = 18, TOP_VAR_DECL = 19, TOP_STMT = 20, UNKNOWN = 21;
+
+    private byte[] out = new byte[1 << 16];
+    private int size;
+    private final Map<String, Integer> pool = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private int line;
+    // Token.symbol se može čitati kao indeks u tabeli stringova
+    private boolean named;
+
+    public void write(Ast.Program p, OutputStream target) throws IOException {
+        size = 0;
+        pool.clear();
+        strings.clear();
+
+        SymbolTable symbols = p.symbols;
+        int symbolCount = symbols == null ? 0 : symbols.size();
+        named = symbols != null;
+        for (int id = 0; id < symbolCount; id++) {
+            pool.put(symbols.name(id), id);
+            strings.add(symbols.name(id));
+        }
+
+        int[] offsets = new int[p.items.size()];
+        size = HEADER;
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = size;
+            line = 0;
+            item(p.items.get(i));
+        }
+
+        int index = size;
+        for (int off : offsets) int32(off);
+
+        int poolAt = size;
+        int32(strings.size());
+        int32(symbolCount);
+        int offsetsAt = size;
+        size += 4 * strings.size();
+        for (int i = 0; i < strings.size(); i++) {
+            int at = size;
+            byte[] b = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            varint(b.length);
+            bytes(b);
+            putInt(offsetsAt + 4 * i, at);
+        }
+
+        int end = size;
+        size = 0;
+        int32(MAGIC);
+        int32(VERSION);
+        int32((p.hasBattleMain ? FLAG_BATTLE_MAIN : 0) | (symbols != null ? FLAG_SYMBOLS : 0));
+        int32(offsets.length);
+        int32(index);
+        int32(poolAt);
+        target.write(out, 0, end);
+        target.flush();
+    }
+
+    private void item(Ast.TopItem it) {
+        if (it instanceof Ast.FuncDef f) {
+            u8(FUNC);
+            token(f.name);
+            type(f.returnType);
+            varint(f.params.size());
+            for (Ast.Param p : f.params) {
+                token(p.name);
+                type(p.type);
+            }
+            stmts(f.body);
+        } else if (it instanceof Ast.TopVarDecl v) {
+            u8(TOP_VAR_DECL);
+            stmt(v.decl);
+        } else if (it instanceof Ast.TopStmt s) {
+            u8(TOP_STMT);
+            stmt(s.stmt);
+        } else {
+            u8(UNKNOWN);
+        }
+    }
+
+    // bajt: Type.Kind ordinal, 0x80 ako postoji token osnovnog tipa
+    private void type(Ast.Type t) {
+        u8(t.kind.ordinal() | (t.baseTypeTok != null ? 0x80 : 0));
+        varint(t.rank);
+        if (t.baseTypeTok != null) token(t.baseTypeTok);
+    }
+
+    private void token(Token t) {
+        if (t == null) {
+            u8(NO_TOKEN);
+            return;
+        }
+        u8(t.type.ordinal());
+        if (t.type == TokenType.IDENT) varint(t.symbol + 1);
+        if (t.type != TokenType.IDENT || t.symbol < 0 || !named) varint(string(t.lexeme));
+        zigzag(t.line - line);
+        line = t.line;
+        varint(t.colStart);
+        varint(t.colEnd - t.colStart);
+    }
+
+    private int string(String s) {
+        Integer id = pool.get(s);
+        if (id != null) return id;
+        pool.put(s, strings.size());
+        strings.add(s);
+        return strings.size() - 1;
+    }
+
+    private void stmts(List<Ast.Stmt> list) {
+        varint(list.size());
+        for (Ast.Stmt s : list) stmt(s);
+    }
+
+    private void exprs(List<Ast.Expr> list) {
+        varint(list.size());
+        for (Ast.Expr e : list) expr(e);
+    }
+
+    private void stmt(Ast.Stmt s) {
+        if (s == null) {
+            u8(NULL);
+        } else if (s instanceof Ast.Stmt.VarDecl v) {
+            u8(VAR_DECL);
+            type(v.type);
+            exprs(v.dims);
+            varint(v.names.size());
+            for (Token t : v.names) token(t);
+            expr(v.init);
+        } else if (s instanceof Ast.Stmt.Assign a) {
+            u8(ASSIGN);
+            expr(a.left);
+            token(a.lvalue.name);
+            exprs(a.lvalue.indices);
+            if (a.declared == null) {
+                u8(0);
+            } else {
+                u8(1);
+                type(a.declared);
+            }
+        } else if (s instanceof Ast.Stmt.CallStmt c) {
+            u8(CALL_STMT);
+            expr(c.call);
+        } else if (s instanceof Ast.Stmt.Return r) {
+            u8(RETURN);
+            expr(r.expr);
+        } else if (s instanceof Ast.Stmt.BeginIf i) {
+            u8(IF);
+            expr(i.ifArm.cond);
+            stmts(i.ifArm.block);
+            varint(i.elderArms.size());
+            for (Ast.Stmt.BeginIf.Arm a : i.elderArms) {
+                expr(a.cond);
+                stmts(a.block);
+            }
+            if (i.elseBlock == null) {
+                u8(0);
+            } else {
+                u8(1);
+                stmts(i.elseBlock);
+            }
+        } else if (s instanceof Ast.Stmt.BeginCycle c) {
+            u8(CYCLE);
+            stmt(c.init);
+            expr(c.cond);
+            stmt(c.step);
+            stmts(c.body);
+        } else {
+            throw new IllegalArgumentException("Nepoznata naredba: " + s.getClass().getSimpleName());
+        }
+    }
+
+    private void expr(Ast.Expr e) {
+        if (e == null) {
+            u8(NULL);
+        } else if (e instanceof Ast.Expr.LiteralInt l) {
+            u8(LIT_INT);
+            zigzag(l.value);
+            token(l.token);
+        } else if (e instanceof Ast.Expr.LiteralDouble l) {
+            u8(LIT_DOUBLE);
+            int64(Double.doubleToRawLongBits(l.value));
+            token(l.token);
+        } else if (e instanceof Ast.Expr.LiteralChar l) {
+            u8(LIT_CHAR);
+            token(l.token);
+            varint(l.codePoint);
+        } else if (e instanceof Ast.Expr.LiteralString l) {
+            u8(LIT_STRING);
+            token(l.token);
+            varint(string(l.value));
+        } else if (e instanceof Ast.Expr.Ident i) {
+            u8(IDENT);
+            token(i.name);
+        } else if (e instanceof Ast.Expr.Index i) {
+            u8(INDEX);
+            token(i.name);
+            exprs(i.indices);
+        } else if (e instanceof Ast.Expr.Grouping g) {
+            u8(GROUP);
+            expr(g.inner);
+        } else if (e instanceof Ast.Expr.Call c) {
+            u8(CALL);
+            token(c.callTok);
+            token(c.callee);
+            exprs(c.args);
+        } else if (e instanceof Ast.Expr.Unary u) {
+            u8(UNARY);
+            token(u.op);
+            expr(u.expr);
+        } else if (e instanceof Ast.Expr.Binary b) {
+            u8(BINARY);
+            expr(b.left);
+            token(b.op);
+            expr(b.right);
+        } else if (e instanceof Ast.Expr.Ternary t) {
+            u8(TERNARY);
+            expr(t.condition);
+            expr(t.thenExpr);
+            expr(t.elseExpr);
+        } else {
+            throw new IllegalArgumentException("Nepoznat izraz: " + e.getClass().getSimpleName());
+        }
+    }
+
+    private void ensure(int n) {
+        if (size + n > out.length) out = Arrays.copyOf(out, Math.max(out.length * 2, size + n));
+    }
+
+    private void u8(int b) {
+        ensure(1);
+        out[size++] = (byte) b;
+    }
+
+    private void bytes(byte[] b) {
+        ensure(b.length);
+        System.arraycopy(b, 0, out, size, b.length);
+        size += b.length;
+    }
+
+    private void varint(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            out[size++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out[size++] = (byte) v;
+    }
+
+    private void zigzag(long v) { varint((v << 1) ^ (v >> 63)); }
+
+    private void int32(int v) {
+        ensure(4);
+        putInt(size, v);
+        size += 4;
+    }
+
+    private void int64(long v) {
+        int32((int) (v >>> 32));
+        int32((int) v);
+    }
+
+    private void putInt(int at, int v) {
+        out[at] = (byte) (v >>> 24);
+        out[at + 1] = (byte) (v >>> 16);
+        out[at + 2] = (byte) (v >>> 8);
+        out[at + 3] = (byte) v;
+    }
+}
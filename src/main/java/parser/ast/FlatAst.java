@@ -0,0 +1,217 @@
+package parser.ast;
+
+import lexer.token.TokenBuffer;
+import lexer.token.TokenType;
+
+import java.util.Arrays;
+
+// AST u int nizovima, bez objekta po čvoru: čvor je indeks (handle), deca su uzastopno u kids
+// tekst, vrednosti i pozicije se čitaju iz TokenBuffer-a preko indeksa tokena; pravi ga ParserAst.parseFlat()
+//
+// PROGRAM: funkcije | FUNC (ime): TYPE, PARAMS, BLOCK | PARAMS: PARAM... | PARAM (ime): TYPE
+// TYPE (ključna reč, @tip@ ili battle): bez dece, typeKind() i rank()
+// BLOCK: naredbe | VAR_DECL (ime): TYPE, inicijalizator ako postoji | ASSIGN (ime): indeksi..., vrednost je poslednje dete
+// CALL_STMT: CALL | RETURN (krajBorbe): izraz ili ništa
+// IF (leader): ARM za leader, ARM za svaki elder, BLOCK za member ako postoji | ARM: uslov, BLOCK
+// CYCLE (cycle): init, cond, step (NONE kada deo ne postoji), BLOCK
+// INT, DOUBLE, CHAR, STRING, IDENT (literal/ime) | INDEX (ime): indeksi | GROUP: izraz | CALL (ime): argumenti
+// UNARY (operator): izraz | BINARY (operator): levi, desni | TERNARY: uslov, then, else
+// i++ / i-- u cycle je ASSIGN(i, BINARY(IDENT, INT)) gde BINARY i INT imaju token '++'/'--'
+public final class FlatAst {
+
+    public enum Kind {
+        PROGRAM, FUNC, PARAMS, PARAM, TYPE, BLOCK,
+        VAR_DECL, ASSIGN, CALL_STMT, RETURN, IF, ARM, CYCLE,
+        INT, DOUBLE, CHAR, STRING, IDENT, INDEX, GROUP, CALL, UNARY, BINARY, TERNARY
+    }
+
+    public interface ExprVisitor<R> {
+        R visitLiteralInt(int node);
+        R visitLiteralDouble(int node);
+        R visitLiteralChar(int node);
+        R visitLiteralString(int node);
+        R visitIdent(int node);
+        R visitIndex(int node);
+        R visitGrouping(int node);
+        R visitCall(int node);
+        R visitUnary(int node);
+        R visitBinary(int node);
+        R visitTernary(int node);
+    }
+
+    public interface StmtVisitor<R> {
+        R visitVarDecl(int node);
+        R visitAssign(int node);
+        R visitCallStmt(int node);
+        R visitReturn(int node);
+        R visitBeginIf(int node);
+        R visitBeginCycle(int node);
+    }
+
+    public static final int NONE = -1;
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final Ast.Type.Kind[] TYPE_KINDS = Ast.Type.Kind.values();
+    private static final String[] TYPE_NAMES = { "brojElixira", "doubleElixir", "slovoKartice", "imeKartice", "bezElixira" };
+
+    private final TokenBuffer tokens;
+    private int[] kinds;
+    private int[] tokenAt;
+    // za TYPE: first je Ast.Type.Kind.ordinal(), count je rank
+    private int[] firsts;
+    private int[] counts;
+    private int size = 0;
+    private int[] kids;
+    private int kidCount = 0;
+    // deca čvora koji još nije zatvoren
+    private int[] stack = new int[64];
+    private int height = 0;
+    private int root = NONE;
+    private boolean hasBattleMain;
+
+    FlatAst(TokenBuffer tokens) {
+        this.tokens = tokens;
+        int cap = Math.max(tokens.size() / 4 * 3, 16);
+        kinds = new int[cap];
+        tokenAt = new int[cap];
+        firsts = new int[cap];
+        counts = new int[cap];
+        kids = new int[cap];
+    }
+
+    public TokenBuffer tokens() { return tokens; }
+
+    public int root() { return root; }
+
+    public boolean hasBattleMain() { return hasBattleMain; }
+
+    public int size() { return size; }
+
+    public Kind kind(int node) { return KINDS[kinds[node]]; }
+
+    // indeks tokena u tokens(), NONE za čvorove bez tokena
+    public int token(int node) { return tokenAt[node]; }
+
+    public int childCount(int node) { return kinds[node] == Kind.TYPE.ordinal() ? 0 : counts[node]; }
+
+    public int child(int node, int i) { return kids[firsts[node] + i]; }
+
+    public int lastChild(int node) { return kids[firsts[node] + counts[node] - 1]; }
+
+    public Ast.Type.Kind typeKind(int node) { return TYPE_KINDS[firsts[node]]; }
+
+    public int rank(int node) { return counts[node]; }
+
+    public int line(int node) { return tokens.line(tokenAt[node]); }
+
+    public int col(int node) { return tokens.colStart(tokenAt[node]); }
+
+    // tekst tokena čvora; TYPE daje ime tipa, a delovi i++ / i-- svoj '+' / '-' i '1'
+    public String lexeme(int node) {
+        Kind k = kind(node);
+        if (k == Kind.TYPE) return TYPE_NAMES[firsts[node]];
+        TokenType t = tokens.type(tokenAt[node]);
+        if (t == TokenType.INCREMENT || t == TokenType.DECREMENT) {
+            if (k == Kind.INT) return "1";
+            return t == TokenType.INCREMENT ? "+" : "-";
+        }
+        return tokens.lexeme(tokenAt[node]);
+    }
+
+    public TokenType op(int node) {
+        TokenType t = tokens.type(tokenAt[node]);
+        if (t == TokenType.INCREMENT) return TokenType.ADD;
+        if (t == TokenType.DECREMENT) return TokenType.SUB;
+        return t;
+    }
+
+    public long longValue(int node) {
+        TokenType t = tokens.type(tokenAt[node]);
+        return t == TokenType.INCREMENT || t == TokenType.DECREMENT ? 1L : tokens.value(tokenAt[node]);
+    }
+
+    public double doubleValue(int node) { return tokens.doubleValue(tokenAt[node]); }
+
+    public int codePoint(int node) { return tokens.lexeme(tokenAt[node]).codePointAt(0); }
+
+    // CALL za ugrađene ispisiKarticu/ucitajKarticu
+    public boolean isBuiltin(int node) {
+        TokenType t = tokens.type(tokenAt[node]);
+        return t == TokenType.ISPISI_KARTICU || t == TokenType.UCITAJ_KARTICU;
+    }
+
+    public <R> R accept(int node, ExprVisitor<R> v) {
+        return switch (kind(node)) {
+            case INT -> v.visitLiteralInt(node);
+            case DOUBLE -> v.visitLiteralDouble(node);
+            case CHAR -> v.visitLiteralChar(node);
+            case STRING -> v.visitLiteralString(node);
+            case IDENT -> v.visitIdent(node);
+            case INDEX -> v.visitIndex(node);
+            case GROUP -> v.visitGrouping(node);
+            case CALL -> v.visitCall(node);
+            case UNARY -> v.visitUnary(node);
+            case BINARY -> v.visitBinary(node);
+            case TERNARY -> v.visitTernary(node);
+            default -> throw new IllegalArgumentException("Čvor " + node + " nije izraz: " + kind(node));
+        };
+    }
+
+    public <R> R accept(int node, StmtVisitor<R> v) {
+        return switch (kind(node)) {
+            case VAR_DECL -> v.visitVarDecl(node);
+            case ASSIGN -> v.visitAssign(node);
+            case CALL_STMT -> v.visitCallStmt(node);
+            case RETURN -> v.visitReturn(node);
+            case IF -> v.visitBeginIf(node);
+            case CYCLE -> v.visitBeginCycle(node);
+            default -> throw new IllegalArgumentException("Čvor " + node + " nije naredba: " + kind(node));
+        };
+    }
+
+    // gradnja: parser stavlja decu na stek redom kojim ih pročita, a roditelj ih skida
+
+    int height() { return height; }
+
+    void reset(int height) { this.height = height; }
+
+    int pop() { return stack[--height]; }
+
+    void push(int node) {
+        if (height == stack.length) stack = Arrays.copyOf(stack, height * 2);
+        stack[height++] = node;
+    }
+
+    // novi čvor čija su deca poslednjih children čvorova na steku
+    void node(Kind kind, int token, int children) {
+        if (kidCount + children > kids.length) kids = Arrays.copyOf(kids, Math.max(kids.length * 2, kidCount + children));
+        height -= children;
+        System.arraycopy(stack, height, kids, kidCount, children);
+        push(add(kind, token, kidCount, children));
+        kidCount += children;
+    }
+
+    void type(int token, Ast.Type.Kind kind, int rank) {
+        push(add(Kind.TYPE, token, kind.ordinal(), rank));
+    }
+
+    void finish(boolean hasBattleMain) {
+        this.root = pop();
+        this.hasBattleMain = hasBattleMain;
+    }
+
+    private int add(Kind kind, int token, int first, int count) {
+        if (size == kinds.length) {
+            int cap = size * 2;
+            kinds = Arrays.copyOf(kinds, cap);
+            tokenAt = Arrays.copyOf(tokenAt, cap);
+            firsts = Arrays.copyOf(firsts, cap);
+            counts = Arrays.copyOf(counts, cap);
+        }
+        kinds[size] = kind.ordinal();
+        tokenAt[size] = token;
+        firsts[size] = first;
+        counts[size] = count;
+        return size++;
+    }
+}
@@ -0,0 +1,388 @@
+package parser.ast;
+
+import diagnostic.Diagnostic;
+import lexer.IncrementalLexer;
+import lexer.token.Token;
+import lexer.token.TokenBuffer;
+import lexer.token.TokenType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// drži izvor, tokene i AST; posle izmene ponovo parsira samo funkcije čiji su se tokeni promenili
+// deo je niz tokena od @tip@ ili battle do sledećeg; parser se na svakom takvom tokenu i sam vraća na top-level,
+// pa je rezultat po delovima isti kao parsiranje celog programa u recovering modu
+// delovi ispred i iza tokena koje je lexer ponovo napravio se preuzimaju po mestu, bez hash-a;
+// ostali se traže po hash-u, a preuzimaju tek kada su im tokeni zaista isti kao pri parsiranju
+// pozicije u ključu su relativne prema prvom tokenu dela (linija kao razlika, kolona samo u prvoj liniji),
+// pa se deo pomeren u druge linije preuzima, a pozicije u njegovom AST-u i greškama se pomeraju
+public final class IncrementalParser {
+    private final IncrementalLexer lexer;
+    // delovi poslednje verzije, po ključu i redom po prvom tokenu; ostali se brišu posle svake izmene
+    private Map<Key, Part> cache = new HashMap<>();
+    private List<Span> spans = new ArrayList<>();
+    // broj tokena poslednje verzije
+    private int size;
+    private Ast.Program program;
+    private List<Diagnostic> diagnostics;
+    private int reused;
+
+    public IncrementalParser(String source) {
+        this.lexer = new IncrementalLexer(source);
+        reparse();
+    }
+
+    public String source() { return lexer.source(); }
+
+    public TokenBuffer tokens() { return lexer.tokens(); }
+
+    public Ast.Program program() { return program; }
+
+    // greške leksera pa sintaksne greške
+    public List<Diagnostic> diagnostics() { return diagnostics; }
+
+    // broj delova preuzetih iz keša u poslednjem parsiranju
+    public int reused() { return reused; }
+
+    // zamenjuje [offset, offset + removed) sa inserted i vraća novi program
+    public Ast.Program edit(int offset, int removed, String inserted) {
+        lexer.edit(offset, removed, inserted);
+        reparse();
+        return program;
+    }
+
+    // hash i broj tokena prve funkcije dela; samo za traženje, deo se preuzima tek posle same()
+    private record Key(long hash, int length) {}
+
+    // length: broj tokena koje deo pokriva; veći od jednog dela kada je greška stigla do sledeće funkcije
+    // line, col: pozicija prvog tokena za koju važe items i diagnostics
+    // shape: po 5 int-ova za svaki token (tip, simbol, relativna linija, kolone) i 3 za granicu; texts: sopstveni tekst tokena
+    private record Part(List<Ast.TopItem> items, boolean hasBattleMain, List<Diagnostic> diagnostics, int length,
+                        int line, int col, int[] shape, String[] texts) {}
+
+    private record Span(int from, Key key, Part part) {}
+
+    private void reparse() {
+        TokenBuffer tokens = lexer.tokens();
+        int end = tokens.size() - 1;
+        // indeks u prethodnoj verziji je isti ispred izmene, a iza nje pomeren za delta
+        int changedFrom = lexer.changedFrom(), changedTo = lexer.changedTo();
+        int delta = tokens.size() - size;
+        Map<Key, Part> nextCache = new HashMap<>();
+        List<Span> nextSpans = new ArrayList<>();
+        List<Ast.TopItem> items = new ArrayList<>();
+        List<Diagnostic> diags = new ArrayList<>(lexer.diagnostics());
+        boolean hasBattleMain = false;
+        reused = 0;
+
+        int from = 0, s = 0;
+        while (from < end) {
+            Key key = null;
+            Part part = null;
+            int old = from < changedFrom ? from : from >= changedTo ? from - delta : -1;
+            if (old >= 0) {
+                while (s < spans.size() && spans.get(s).from < old) s++;
+                if (s < spans.size() && spans.get(s).from == old) {
+                    Span span = spans.get(s);
+                    // deo ispred izmene važi samo ako ni njegova granica nije ponovo leksirana
+                    if (from >= changedTo || from + span.part.length < changedFrom) {
+                        key = span.key;
+                        part = span.part;
+                    }
+                }
+            }
+            if (part == null) {
+                int to = nextFunction(tokens, from, end);
+                key = new Key(hash(tokens, from, to), to - from);
+                part = cache.get(key);
+                if (part != null && !same(tokens, from, end, part)) part = null;
+                if (part == null) part = parse(tokens, from, to, end);
+            }
+            if (part.line != tokens.line(from) || part.col != tokens.colStart(from)) {
+                part = rebase(tokens, from, end, part);
+            }
+            if (part.shape != null) reused++;
+            else part = snapshot(tokens, from, part);
+            nextCache.put(key, part);
+            nextSpans.add(new Span(from, key, part));
+
+            items.addAll(part.items);
+            hasBattleMain |= part.hasBattleMain;
+            diags.addAll(part.diagnostics);
+            from += part.length;
+        }
+
+        this.cache = nextCache;
+        this.spans = nextSpans;
+        this.size = tokens.size();
+        this.program = new Ast.Program(hasBattleMain, items, tokens.symbols());
+        this.diagnostics = diags;
+    }
+
+    // prvi @tip@ ili battle posle from, inače end
+    private static int nextFunction(TokenBuffer tokens, int from, int end) {
+        int to = from + 1;
+        while (to < end && tokens.type(to) != TokenType.AT_TYPE && tokens.type(to) != TokenType.BATTLE) to++;
+        return to;
+    }
+
+    // tokeni [from, to); parser na to vidi EOF; shape se pravi tek kada je deo konačan
+    // greška na samoj granici zavisi od tokena iza nje (poruka, spajanje grešaka na istom mestu), pa se deo produžava
+    private static Part parse(TokenBuffer tokens, int from, int to, int end) {
+        while (true) {
+            ParserAst parser = new ParserAst(tokens.stream(from, to), tokens.symbols()).recovering();
+            Ast.Program p = parser.parseProgram();
+            List<Diagnostic> diags = parser.diagnostics();
+            Diagnostic last = diags.isEmpty() ? null : diags.get(diags.size() - 1);
+            if (to < end && last != null && last.line == tokens.line(to) && last.col == tokens.colStart(to)) {
+                to = nextFunction(tokens, to, end);
+                continue;
+            }
+            return new Part(p.items, p.hasBattleMain, diags, to - from, tokens.line(from), tokens.colStart(from), null, null);
+        }
+    }
+
+    // relativni oblik tokena [from, from + length] za kasnije poređenje u same()
+    private static Part snapshot(TokenBuffer tokens, int from, Part part) {
+        int to = from + part.length;
+        int line = tokens.line(from), col = tokens.colStart(from);
+        int[] shape = new int[5 * part.length + 3];
+        String[] texts = null;
+        for (int i = from, k = 0; i < to; i++, k += 5) {
+            TokenType t = tokens.type(i);
+            int l = tokens.line(i) - line;
+            shape[k] = t.ordinal();
+            shape[k + 1] = t == TokenType.IDENT ? (int) tokens.value(i) : 0;
+            shape[k + 2] = l;
+            shape[k + 3] = l == 0 ? tokens.colStart(i) - col : tokens.colStart(i);
+            shape[k + 4] = l == 0 ? tokens.colEnd(i) - col : tokens.colEnd(i);
+            if (t != TokenType.IDENT && TokenBuffer.hasOwnText(t)) {
+                if (texts == null) texts = new String[part.length];
+                texts[i - from] = tokens.lexeme(i);
+            }
+        }
+        int l = tokens.line(to) - line;
+        shape[5 * part.length] = tokens.type(to).ordinal();
+        shape[5 * part.length + 1] = l;
+        shape[5 * part.length + 2] = l == 0 ? tokens.colStart(to) - col : tokens.colStart(to);
+        return new Part(part.items, part.hasBattleMain, part.diagnostics, part.length, part.line, part.col, shape, texts);
+    }
+
+    // tokeni od from su isti kao oni od kojih je deo napravljen, do na pomeraj; deo od više funkcija mora da se završi na granici
+    private static boolean same(TokenBuffer tokens, int from, int end, Part part) {
+        int to = from + part.length;
+        if (to > end) return false;
+        if (to < end && tokens.type(to) != TokenType.AT_TYPE && tokens.type(to) != TokenType.BATTLE) return false;
+        int line = tokens.line(from), col = tokens.colStart(from);
+        int[] shape = part.shape;
+        for (int i = from, k = 0; i < to; i++, k += 5) {
+            TokenType t = tokens.type(i);
+            int l = tokens.line(i) - line;
+            if (shape[k] != t.ordinal() || shape[k + 2] != l) return false;
+            if (shape[k + 3] != (l == 0 ? tokens.colStart(i) - col : tokens.colStart(i))) return false;
+            if (shape[k + 4] != (l == 0 ? tokens.colEnd(i) - col : tokens.colEnd(i))) return false;
+            if (t == TokenType.IDENT) {
+                if (shape[k + 1] != (int) tokens.value(i)) return false;
+            } else if (TokenBuffer.hasOwnText(t) && !part.texts[i - from].equals(tokens.lexeme(i))) {
+                return false;
+            }
+        }
+        int l = tokens.line(to) - line;
+        return shape[5 * part.length] == tokens.type(to).ordinal() && shape[5 * part.length + 1] == l
+                && shape[5 * part.length + 2] == (l == 0 ? tokens.colStart(to) - col : tokens.colStart(to));
+    }
+
+    // tipovi, tekst i relativne pozicije tokena [from, to), pa tip i relativna pozicija tokena to, na kojoj deo vidi EOF
+    // (na pravom EOF-u se deo ne produžava, pa isti tokeni ispred sledeće funkcije mogu dati drugačiji rezultat)
+    private static long hash(TokenBuffer tokens, int from, int to) {
+        int line = tokens.line(from), col = tokens.colStart(from);
+        long h = 1125899906842597L;
+        for (int i = from; i < to; i++) {
+            TokenType t = tokens.type(i);
+            int l = tokens.line(i) - line;
+            h = 31 * h + t.ordinal();
+            if (t == TokenType.IDENT) {
+                h = 31 * h + tokens.value(i);
+            } else if (TokenBuffer.hasOwnText(t)) {
+                h = 31 * h + tokens.lexeme(i).hashCode();
+            }
+            h = 31 * h + l;
+            h = 31 * h + (l == 0 ? tokens.colStart(i) - col : tokens.colStart(i));
+            h = 31 * h + (l == 0 ? tokens.colEnd(i) - col : tokens.colEnd(i));
+        }
+        int l = tokens.line(to) - line;
+        h = 31 * h + tokens.type(to).ordinal();
+        h = 31 * h + l;
+        return 31 * h + (l == 0 ? tokens.colStart(to) - col : tokens.colStart(to));
+    }
+
+    // deo na novoj poziciji: AST i greške se kopiraju sa pomerenim pozicijama
+    // kopija je rekurzivna, pa se deo dublji od Shift.MAX_DEPTH ponovo parsira (parser nema rekurziju)
+    private static Part rebase(TokenBuffer tokens, int from, int end, Part part) {
+        Shift shift = new Shift(part.line, tokens.line(from) - part.line, tokens.colStart(from) - part.col);
+        List<Ast.TopItem> items;
+        try {
+            items = new ArrayList<>(part.items.size());
+            for (Ast.TopItem it : part.items) items.add(shift.item(it));
+        } catch (TooDeep ex) {
+            return parse(tokens, from, nextFunction(tokens, from, end), end);
+        }
+        List<Diagnostic> diags = new ArrayList<>(part.diagnostics.size());
+        for (Diagnostic d : part.diagnostics) {
+            diags.add(new Diagnostic(d.code, d.message, shift.line(d.line), shift.col(d.line, d.col), d.offset, d.length));
+        }
+        return new Part(items, part.hasBattleMain, diags, part.length, tokens.line(from), tokens.colStart(from), part.shape, part.texts);
+    }
+
+    // kopija AST-a sa tokenima pomerenim za lines linija; kolone se pomeraju samo u liniji base
+    // vrednosti koje upisuje Resolver se ne kopiraju
+    // ovaj jedini primerak (bez stack trace-a) prekida kopiju previše dubokog dela
+    private static final class TooDeep extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        TooDeep() { super(null, null, false, false); }
+    }
+    private static final TooDeep TOO_DEEP = new TooDeep();
+
+    private static final class Shift implements Ast.Expr.Visitor<Ast.Expr>, Ast.Stmt.Visitor<Ast.Stmt> {
+        // najviše ugnežđenih naredbi i izraza u kopiji; to je mali deo podrazumevanog steka, a dublji kod je redak
+        static final int MAX_DEPTH = 256;
+
+        private final int base, lines, cols;
+        private int depth;
+
+        Shift(int base, int lines, int cols) {
+            this.base = base;
+            this.lines = lines;
+            this.cols = cols;
+        }
+
+        int line(int line) { return line + lines; }
+
+        int col(int line, int col) { return line == base ? col + cols : col; }
+
+        Token token(Token t) {
+            if (t == null) return null;
+            return new Token(t.type, t.lexeme, t.literal, line(t.line), col(t.line, t.colStart), col(t.line, t.colEnd), t.symbol);
+        }
+
+        Ast.TopItem item(Ast.TopItem it) {
+            if (it instanceof Ast.FuncDef f) {
+                List<Ast.Param> params = new ArrayList<>(f.params.size());
+                for (Ast.Param p : f.params) params.add(new Ast.Param(token(p.name), type(p.type)));
+                return new Ast.FuncDef(token(f.name), params, type(f.returnType), stmts(f.body));
+            }
+            if (it instanceof Ast.TopVarDecl v) return new Ast.TopVarDecl((Ast.Stmt.VarDecl) stmt(v.decl));
+            if (it instanceof Ast.TopStmt s) return new Ast.TopStmt(stmt(s.stmt));
+            return it;
+        }
+
+        Ast.Type type(Ast.Type t) {
+            return t == null ? null : new Ast.Type(t.kind, token(t.baseTypeTok), t.rank);
+        }
+
+        Ast.Stmt stmt(Ast.Stmt s) {
+            if (s == null) return null;
+            if (++depth > MAX_DEPTH) throw TOO_DEEP;
+            Ast.Stmt out = s.accept(this);
+            depth--;
+            return out;
+        }
+
+        List<Ast.Stmt> stmts(List<Ast.Stmt> list) {
+            if (list == null) return null;
+            List<Ast.Stmt> out = new ArrayList<>(list.size());
+            for (Ast.Stmt s : list) out.add(stmt(s));
+            return out;
+        }
+
+        Ast.Expr expr(Ast.Expr e) {
+            if (e == null) return null;
+            if (++depth > MAX_DEPTH) throw TOO_DEEP;
+            Ast.Expr out = e.accept(this);
+            depth--;
+            return out;
+        }
+
+        List<Ast.Expr> exprs(List<Ast.Expr> list) {
+            List<Ast.Expr> out = new ArrayList<>(list.size());
+            for (Ast.Expr e : list) out.add(expr(e));
+            return out;
+        }
+
+        @Override
+        public Ast.Stmt visitVarDecl(Ast.Stmt.VarDecl s) {
+            List<Token> names = new ArrayList<>(s.names.size());
+            for (Token t : s.names) names.add(token(t));
+            return new Ast.Stmt.VarDecl(type(s.type), exprs(s.dims), names, expr(s.init));
+        }
+
+        @Override
+        public Ast.Stmt visitAssign(Ast.Stmt.Assign s) {
+            Ast.Stmt.LValue lv = new Ast.Stmt.LValue(token(s.lvalue.name), exprs(s.lvalue.indices));
+            return new Ast.Stmt.Assign(expr(s.left), lv, type(s.declared));
+        }
+
+        @Override
+        public Ast.Stmt visitCallStmt(Ast.Stmt.CallStmt s) {
+            return new Ast.Stmt.CallStmt((Ast.Expr.Call) expr(s.call));
+        }
+
+        @Override
+        public Ast.Stmt visitReturn(Ast.Stmt.Return s) {
+            return new Ast.Stmt.Return(expr(s.expr));
+        }
+
+        @Override
+        public Ast.Stmt visitBeginIf(Ast.Stmt.BeginIf s) {
+            List<Ast.Stmt.BeginIf.Arm> elder = new ArrayList<>(s.elderArms.size());
+            for (Ast.Stmt.BeginIf.Arm a : s.elderArms) elder.add(arm(a));
+            return new Ast.Stmt.BeginIf(arm(s.ifArm), elder, stmts(s.elseBlock));
+        }
+
+        private Ast.Stmt.BeginIf.Arm arm(Ast.Stmt.BeginIf.Arm a) {
+            return new Ast.Stmt.BeginIf.Arm(expr(a.cond), stmts(a.block));
+        }
+
+        @Override
+        public Ast.Stmt visitBeginCycle(Ast.Stmt.BeginCycle s) {
+            return new Ast.Stmt.BeginCycle(stmt(s.init), expr(s.cond), stmt(s.step), stmts(s.body));
+        }
+
+        @Override
+        public Ast.Expr visitLiteralInt(Ast.Expr.LiteralInt e) { return new Ast.Expr.LiteralInt(token(e.token), e.value); }
+
+        @Override
+        public Ast.Expr visitLiteralDouble(Ast.Expr.LiteralDouble e) { return new Ast.Expr.LiteralDouble(token(e.token), e.value); }
+
+        @Override
+        public Ast.Expr visitLiteralChar(Ast.Expr.LiteralChar e) { return new Ast.Expr.LiteralChar(token(e.token), e.codePoint); }
+
+        @Override
+        public Ast.Expr visitLiteralString(Ast.Expr.LiteralString e) { return new Ast.Expr.LiteralString(token(e.token), e.value); }
+
+        @Override
+        public Ast.Expr visitIdent(Ast.Expr.Ident e) { return new Ast.Expr.Ident(token(e.name)); }
+
+        @Override
+        public Ast.Expr visitIndex(Ast.Expr.Index e) { return new Ast.Expr.Index(token(e.name), exprs(e.indices)); }
+
+        @Override
+        public Ast.Expr visitGrouping(Ast.Expr.Grouping e) { return new Ast.Expr.Grouping(expr(e.inner)); }
+
+        @Override
+        public Ast.Expr visitCall(Ast.Expr.Call e) { return new Ast.Expr.Call(token(e.callTok), token(e.callee), exprs(e.args)); }
+
+        @Override
+        public Ast.Expr visitUnary(Ast.Expr.Unary e) { return new Ast.Expr.Unary(token(e.op), expr(e.expr)); }
+
+        @Override
+        public Ast.Expr visitBinary(Ast.Expr.Binary e) { return new Ast.Expr.Binary(expr(e.left), token(e.op), expr(e.right)); }
+
+        @Override
+        public Ast.Expr visitTernary(Ast.Expr.Ternary e) {
+            return new Ast.Expr.Ternary(expr(e.condition), expr(e.thenExpr), expr(e.elseExpr));
+        }
+    }
+}
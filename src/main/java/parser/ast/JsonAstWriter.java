@@ -0,0 +1,392 @@
+package parser.ast;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteConstraints;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+// isti JSON kao JsonAstPrinter, ali se piše direktno u OutputStream dok se obilazi AST, bez JsonNode stabla i String-a
+// out se ne zatvara; podrazumevano kompaktno, pretty() daje isti izlaz kao JsonAstPrinter.print
+public final class JsonAstWriter implements Ast.Expr.Visitor<Void>, Ast.Stmt.Visitor<Void> {
+
+    // parser ne ograničava dubinu, pa ni izlaz; podrazumevana granica (1000) bi prekinula pisanje dubokog AST-a na pola
+    private static final JsonFactory F = new JsonFactory()
+            .setStreamWriteConstraints(StreamWriteConstraints.builder().maxNestingDepth(Integer.MAX_VALUE).build())
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    // pisanje je rekurzivno, pa ide na svoju nit sa stekom po dubini AST-a; mereno je do ~300 B po nivou
+    private static final long STACK_BASE = 1 << 20;
+    private static final long STACK_PER_LEVEL = 1024;
+
+    private boolean pretty = false;
+    private JsonGenerator g;
+
+    public JsonAstWriter pretty() {
+        this.pretty = true;
+        return this;
+    }
+
+    public void write(Ast.Program p, OutputStream out) throws IOException {
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                writeProgram(p, out);
+            } catch (Throwable ex) {
+                failure[0] = ex;
+            }
+        }, "json", STACK_BASE + depth(p) * STACK_PER_LEVEL);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("prekinuto čekanje na pisanje JSON-a");
+        }
+        if (failure[0] instanceof IOException ex) throw ex;
+        if (failure[0] instanceof RuntimeException ex) throw ex;
+        if (failure[0] instanceof Error ex) throw ex;
+    }
+
+    private void writeProgram(Ast.Program p, OutputStream out) throws IOException {
+        try (JsonGenerator gen = F.createGenerator(out, JsonEncoding.UTF8)) {
+            if (pretty) gen.useDefaultPrettyPrinter();
+            this.g = gen;
+            g.writeStartObject();
+            g.writeStringField("type", "program");
+            g.writeBooleanField("hasBattleMain", p.hasBattleMain);
+            g.writeArrayFieldStart("items");
+            for (Ast.TopItem it : p.items) writeTopItem(it);
+            g.writeEndArray();
+            g.writeEndObject();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            this.g = null;
+        }
+    }
+
+    // najdublji lanac čvorova koje write obilazi; brojanje ide eksplicitnim stekom da ne bi samo zavisilo od -Xss
+    private static long depth(Ast.Program p) {
+        Depth d = new Depth();
+        for (Ast.TopItem it : p.items) {
+            if (it instanceof Ast.TopVarDecl v) d.push(v.decl, 1);
+            else if (it instanceof Ast.TopStmt s) d.push(s.stmt, 1);
+            else if (it instanceof Ast.FuncDef f) d.pushAll(f.body, 1);
+        }
+        return d.run();
+    }
+
+    private static final class Depth {
+        private Object[] nodes = new Object[64];
+        private int[] levels = new int[64];
+        private int top, max;
+
+        void push(Object n, int level) {
+            if (n == null) return;
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                levels = Arrays.copyOf(levels, top * 2);
+            }
+            nodes[top] = n;
+            levels[top++] = level;
+        }
+
+        void pushAll(List<?> ns, int level) {
+            for (Object n : ns) push(n, level);
+        }
+
+        int run() {
+            while (top > 0) {
+                Object n = nodes[--top];
+                int l = levels[top] + 1;
+                nodes[top] = null;
+                max = Math.max(max, l - 1);
+                // samo deca koja write zaista piše (init iz VarDecl se ne piše)
+                if (n instanceof Ast.Expr.Index e) pushAll(e.indices, l);
+                else if (n instanceof Ast.Expr.Grouping e) push(e.inner, l);
+                else if (n instanceof Ast.Expr.Call e) pushAll(e.args, l);
+                else if (n instanceof Ast.Expr.Unary e) push(e.expr, l);
+                else if (n instanceof Ast.Expr.Binary e) { push(e.left, l); push(e.right, l); }
+                else if (n instanceof Ast.Expr.Ternary e) { push(e.condition, l); push(e.thenExpr, l); push(e.elseExpr, l); }
+                else if (n instanceof Ast.Stmt.VarDecl s) pushAll(s.dims, l);
+                else if (n instanceof Ast.Stmt.Assign s) { push(s.left, l); pushAll(s.lvalue.indices, l); }
+                else if (n instanceof Ast.Stmt.CallStmt s) push(s.call, l);
+                else if (n instanceof Ast.Stmt.Return s) push(s.expr, l);
+                else if (n instanceof Ast.Stmt.BeginIf s) {
+                    push(s.ifArm.cond, l);
+                    pushAll(s.ifArm.block, l);
+                    for (Ast.Stmt.BeginIf.Arm a : s.elderArms) { push(a.cond, l); pushAll(a.block, l); }
+                    if (s.elseBlock != null) pushAll(s.elseBlock, l);
+                } else if (n instanceof Ast.Stmt.BeginCycle s) {
+                    push(s.init, l);
+                    push(s.cond, l);
+                    push(s.step, l);
+                    pushAll(s.body, l);
+                }
+            }
+            return max;
+        }
+    }
+
+    private void writeTopItem(Ast.TopItem it) throws IOException {
+        g.writeStartObject();
+        if (it instanceof Ast.TopVarDecl v) {
+            g.writeStringField("kind", "topVarDecl");
+            g.writeFieldName("decl");
+            v.decl.accept(this);
+        } else if (it instanceof Ast.TopStmt s) {
+            g.writeStringField("kind", "topStmt");
+            g.writeFieldName("stmt");
+            s.stmt.accept(this);
+        } else if (it instanceof Ast.FuncDef f) {
+            g.writeStringField("kind", "funcDef");
+            g.writeStringField("name", f.name.lexeme);
+
+            g.writeObjectFieldStart("returnType");
+            g.writeStringField("kind", f.returnType.kind.toString());
+            g.writeNumberField("rank", f.returnType.rank);
+            g.writeStringField("baseLexeme", f.returnType.baseTypeTok != null ? f.returnType.baseTypeTok.lexeme : "void");
+            g.writeEndObject();
+
+            g.writeArrayFieldStart("params");
+            for (Ast.Param p : f.params) {
+                g.writeStartObject();
+                g.writeStringField("name", p.name.lexeme);
+                g.writeFieldName("type");
+                writeType(p.type);
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+
+            writeStmts("body", f.body);
+        } else {
+            g.writeStringField("kind", "unknownTopItem");
+        }
+        g.writeEndObject();
+    }
+
+    private void writeType(Ast.Type t) throws IOException {
+        g.writeStartObject();
+        g.writeStringField("kind", t.kind.toString());
+        g.writeNumberField("rank", t.rank);
+        if (t.baseTypeTok != null) g.writeStringField("baseLexeme", t.baseTypeTok.lexeme);
+        g.writeEndObject();
+    }
+
+    private void writeStmts(String field, List<Ast.Stmt> stmts) throws IOException {
+        g.writeArrayFieldStart(field);
+        for (Ast.Stmt st : stmts) st.accept(this);
+        g.writeEndArray();
+    }
+
+    private void writeExprs(String field, List<Ast.Expr> exprs) throws IOException {
+        g.writeArrayFieldStart(field);
+        for (Ast.Expr e : exprs) e.accept(this);
+        g.writeEndArray();
+    }
+
+    private void writeExpr(String field, Ast.Expr e) throws IOException {
+        g.writeFieldName(field);
+        if (e != null) e.accept(this);
+        else g.writeNull();
+    }
+
+    private void writeStmt(String field, Ast.Stmt s) throws IOException {
+        g.writeFieldName(field);
+        if (s != null) s.accept(this);
+        else g.writeNull();
+    }
+
+    // visitori ne bacaju checked izuzetke; write() ga raspakuje
+    private interface Body {
+        void run() throws IOException;
+    }
+
+    private Void object(Body body) {
+        try {
+            g.writeStartObject();
+            body.run();
+            g.writeEndObject();
+            return null;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public Void visitLiteralInt(Ast.Expr.LiteralInt e) {
+        return object(() -> {
+            g.writeStringField("type", "literalInt");
+            g.writeNumberField("value", e.value);
+        });
+    }
+
+    @Override
+    public Void visitLiteralDouble(Ast.Expr.LiteralDouble e) {
+        return object(() -> {
+            g.writeStringField("type", "literalDouble");
+            g.writeNumberField("value", e.value);
+        });
+    }
+
+    @Override
+    public Void visitLiteralChar(Ast.Expr.LiteralChar e) {
+        return object(() -> {
+            g.writeStringField("type", "literalChar");
+            g.writeNumberField("codePoint", e.codePoint);
+        });
+    }
+
+    @Override
+    public Void visitLiteralString(Ast.Expr.LiteralString e) {
+        return object(() -> {
+            g.writeStringField("type", "literalString");
+            g.writeStringField("value", e.value);
+        });
+    }
+
+    @Override
+    public Void visitIdent(Ast.Expr.Ident e) {
+        return object(() -> {
+            g.writeStringField("type", "ident");
+            g.writeStringField("name", e.name.lexeme);
+        });
+    }
+
+    @Override
+    public Void visitIndex(Ast.Expr.Index e) {
+        return object(() -> {
+            g.writeStringField("type", "index");
+            g.writeStringField("name", e.name.lexeme);
+            writeExprs("indices", e.indices);
+        });
+    }
+
+    @Override
+    public Void visitGrouping(Ast.Expr.Grouping e) {
+        return object(() -> {
+            g.writeStringField("type", "group");
+            writeExpr("inner", e.inner);
+        });
+    }
+
+    @Override
+    public Void visitCall(Ast.Expr.Call e) {
+        return object(() -> {
+            g.writeStringField("type", "call");
+            g.writeStringField("name", e.callee.lexeme);
+            writeExprs("args", e.args);
+        });
+    }
+
+    @Override
+    public Void visitUnary(Ast.Expr.Unary e) {
+        return object(() -> {
+            g.writeStringField("type", "unary");
+            g.writeStringField("op", e.op.lexeme);
+            writeExpr("expr", e.expr);
+        });
+    }
+
+    @Override
+    public Void visitBinary(Ast.Expr.Binary e) {
+        return object(() -> {
+            g.writeStringField("type", "binary");
+            g.writeStringField("op", e.op.lexeme);
+            writeExpr("left", e.left);
+            writeExpr("right", e.right);
+        });
+    }
+
+    @Override
+    public Void visitTernary(Ast.Expr.Ternary e) {
+        return object(() -> {
+            g.writeStringField("type", "ternary");
+            writeExpr("cond", e.condition);
+            writeExpr("then", e.thenExpr);
+            writeExpr("elseExpr", e.elseExpr);
+        });
+    }
+
+    @Override
+    public Void visitVarDecl(Ast.Stmt.VarDecl s) {
+        return object(() -> {
+            g.writeStringField("stmt", "varDecl");
+            g.writeFieldName("type");
+            writeType(s.type);
+            writeExprs("dims", s.dims);
+            g.writeArrayFieldStart("names");
+            for (var t : s.names) g.writeString(t.lexeme);
+            g.writeEndArray();
+        });
+    }
+
+    @Override
+    public Void visitAssign(Ast.Stmt.Assign s) {
+        return object(() -> {
+            g.writeStringField("stmt", "assign");
+            writeExpr("left", s.left);
+            g.writeObjectFieldStart("lvalue");
+            g.writeStringField("name", s.lvalue.name.lexeme);
+            writeExprs("indices", s.lvalue.indices);
+            g.writeEndObject();
+        });
+    }
+
+    @Override
+    public Void visitCallStmt(Ast.Stmt.CallStmt s) {
+        return object(() -> {
+            g.writeStringField("stmt", "callStmt");
+            writeExpr("call", s.call);
+        });
+    }
+
+    @Override
+    public Void visitReturn(Ast.Stmt.Return s) {
+        return object(() -> {
+            g.writeStringField("stmt", "return");
+            writeExpr("expr", s.expr);
+        });
+    }
+
+    @Override
+    public Void visitBeginIf(Ast.Stmt.BeginIf s) {
+        return object(() -> {
+            g.writeStringField("stmt", "if");
+
+            g.writeObjectFieldStart("if");
+            writeExpr("cond", s.ifArm.cond);
+            writeStmts("block", s.ifArm.block);
+            g.writeEndObject();
+
+            g.writeArrayFieldStart("elder");
+            for (Ast.Stmt.BeginIf.Arm a : s.elderArms) {
+                g.writeStartObject();
+                writeExpr("cond", a.cond);
+                writeStmts("block", a.block);
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+
+            if (s.elseBlock != null) writeStmts("member", s.elseBlock);
+        });
+    }
+
+    @Override
+    public Void visitBeginCycle(Ast.Stmt.BeginCycle s) {
+        return object(() -> {
+            g.writeStringField("stmt", "cycle");
+            writeStmt("init", s.init);
+            writeExpr("cond", s.cond);
+            writeStmt("step", s.step);
+            writeStmts("body", s.body);
+        });
+    }
+}
@@ -0,0 +1,146 @@
+package parser.ast;
+
+import diagnostic.Diagnostic;
+import lexer.token.TokenBuffer;
+import lexer.token.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// deli tokene na granicama top-level funkcija i parsira delove paralelno; rezultat i greške su isti kao kod ParserAst
+// od prvog dela sa greškom nadalje parsira se sekvencijalno, pa su poruke i pozicije grešaka iste
+public final class ParallelParser {
+    // bafer kraći od dva ovakva dela se parsira sekvencijalno
+    public static final int MIN_CHUNK = 64 * 1024;
+
+    private final TokenBuffer tokens;
+    private final ForkJoinPool pool;
+    private boolean build = true;
+    private boolean recovering = false;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+    public ParallelParser(TokenBuffer tokens) {
+        this(tokens, ForkJoinPool.commonPool());
+    }
+
+    public ParallelParser(TokenBuffer tokens, ForkJoinPool pool) {
+        this.tokens = tokens;
+        this.pool = pool;
+    }
+
+    public ParallelParser recognizeOnly() {
+        this.build = false;
+        return this;
+    }
+
+    public ParallelParser recovering() {
+        this.recovering = true;
+        return this;
+    }
+
+    public List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    // u recognize modu vraća null
+    public Ast.Program parseProgram() {
+        int end = tokens.size() - 1;
+        if (pool.getParallelism() < 2 || end < 2 * MIN_CHUNK) return sequential();
+
+        List<Integer> cuts = boundaries();
+        if (cuts.size() < 3) return sequential();
+
+        List<Callable<Part>> tasks = new ArrayList<>();
+        for (int k = 0; k + 1 < cuts.size(); k++) {
+            int from = cuts.get(k);
+            int to = cuts.get(k + 1);
+            tasks.add(() -> {
+                try {
+                    return parse(from, to);
+                } catch (RuntimeException ex) {
+                    return null;
+                }
+            });
+        }
+
+        List<Future<Part>> parts = pool.invokeAll(tasks);
+        List<Ast.TopItem> items = build ? new ArrayList<>() : null;
+        boolean hasBattleMain = false;
+        for (int k = 0; k < parts.size(); k++) {
+            Part part = join(parts.get(k));
+            if (part == null || !part.diagnostics.isEmpty()) {
+                // deo sa greškom: sekvencijalni parser bi ovde bio na top-level-u, pa ostatak ide kroz njega
+                Part rest = parse(cuts.get(k), end);
+                diagnostics.addAll(rest.diagnostics);
+                return merge(items, hasBattleMain, rest.program);
+            }
+            if (build) {
+                items.addAll(part.program.items);
+                hasBattleMain |= part.program.hasBattleMain;
+            }
+        }
+        return build ? new Ast.Program(hasBattleMain, items, tokens.symbols()) : null;
+    }
+
+    private Ast.Program merge(List<Ast.TopItem> items, boolean hasBattleMain, Ast.Program rest) {
+        if (!build) return null;
+        items.addAll(rest.items);
+        return new Ast.Program(hasBattleMain || rest.hasBattleMain, items, tokens.symbols());
+    }
+
+    private record Part(Ast.Program program, List<Diagnostic> diagnostics) {}
+
+    private Ast.Program sequential() {
+        Part all = parse(0, tokens.size() - 1);
+        diagnostics.addAll(all.diagnostics);
+        return all.program;
+    }
+
+    // tokeni [from, to); parser na to vidi EOF
+    private Part parse(int from, int to) {
+        ParserAst parser = new ParserAst(tokens.stream(from, to), tokens.symbols());
+        if (!build) parser.recognizeOnly();
+        if (recovering) parser.recovering();
+        Ast.Program program = parser.parseProgram();
+        return new Part(program, parser.diagnostics());
+    }
+
+    // indeksi tokena gde počinju delovi: @tip@ ili battle na dubini 0; poslednji je indeks pravog EOF-a
+    private List<Integer> boundaries() {
+        int end = tokens.size() - 1;
+        int target = Math.max(MIN_CHUNK, end / (pool.getParallelism() * 4));
+
+        List<Integer> cuts = new ArrayList<>();
+        cuts.add(0);
+        int next = target;
+        int depth = 0;
+        for (int i = 0; i < end; i++) {
+            TokenType t = tokens.type(i);
+            if (t == TokenType.BLOCK_START) depth++;
+            else if (t == TokenType.BLOCK_END) { if (depth > 0) depth--; }
+            else if (depth == 0 && (t == TokenType.AT_TYPE || t == TokenType.BATTLE) && i >= next && end - i >= target / 2) {
+                cuts.add(i);
+                next = i + target;
+            }
+        }
+        cuts.add(end);
+        return cuts;
+    }
+
+    private static Part join(Future<Part> f) {
+        try {
+            return f.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) throw re;
+            if (ex.getCause() instanceof Error err) throw err;
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
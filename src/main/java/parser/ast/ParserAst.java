@@ -1,25 +1,117 @@
 package parser.ast;
 
+import diagnostic.Diagnostic;
+import lexer.token.SymbolTable;
 import lexer.token.Token;
+import lexer.token.TokenBuffer;
+import lexer.token.TokenStream;
 import lexer.token.TokenType;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+// jedini parser jezika; recognizeOnly() samo proverava sintaksu, bez AST čvorova i Token objekata
 public final class ParserAst {
 
-    private final List<Token> tokens;
-    private int current = 0;
+    // u recognize modu liste čvorova ništa ne čuvaju
+    private static final List<Object> DISCARD = new AbstractList<>() {
+        @Override public Object get(int index) { throw new IndexOutOfBoundsException(index); }
+        @Override public int size() { return 0; }
+        @Override public boolean add(Object o) { return true; }
+    };
+
+    // u recovering modu greška se zapisuje, a ovaj jedini primerak (bez stack trace-a) vraća parser do tačke sinhronizacije
+    private static final class Sync extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        Sync() { super(null, null, false, false); }
+    }
+    private static final Sync SYNC = new Sync();
+
+    // snaga vezivanja binarnih operatora po TokenType.ordinal(); 0 nije binarni operator
+    private static final int[] BINDING_POWER = new int[TokenType.values().length];
+    private static final boolean[] PREFIX = new boolean[TokenType.values().length];
+    static {
+        BINDING_POWER[TokenType.LOG_OR.ordinal()] = 1;
+        BINDING_POWER[TokenType.LOG_AND.ordinal()] = 2;
+        for (TokenType t : new TokenType[]{TokenType.EQ, TokenType.NEQ}) BINDING_POWER[t.ordinal()] = 3;
+        for (TokenType t : new TokenType[]{TokenType.LT, TokenType.LE, TokenType.GT, TokenType.GE}) BINDING_POWER[t.ordinal()] = 4;
+        for (TokenType t : new TokenType[]{TokenType.ADD, TokenType.SUB}) BINDING_POWER[t.ordinal()] = 5;
+        for (TokenType t : new TokenType[]{TokenType.MULTIPLY, TokenType.DIVIDE, TokenType.PERCENT}) BINDING_POWER[t.ordinal()] = 6;
+        for (TokenType t : new TokenType[]{TokenType.LOG_NOT, TokenType.ADD, TokenType.SUB}) PREFIX[t.ordinal()] = true;
+    }
+
+    // nastavci eksplicitnog steka izraza; 1..MAX_POWER je binarni operator te snage koji čeka desni operand
+    private static final int MAX_POWER = 6;
+    private static final int K_UNARY = 8, K_GROUP = 9, K_CALL = 10, K_INDEX = 11;
+    private static final int K_COND = 12, K_THEN = 13, K_ELSE = 14, K_DONE = 15;
+    // parseOperand()/reduce() vraćaju ovo kada je otvoren ugnježđeni izraz
+    private static final Ast.Expr OPEN = new Ast.Expr.Grouping(null);
+
+    private final TokenStream tokens;
+    private final SymbolTable symbols;
+    // bafer iza tokens, ako postoji; FlatAst čvorovi pokazuju na njegove indekse
+    private final TokenBuffer buffer;
+    private FlatAst flat;
+    private boolean build = true;
+    private boolean recovering = false;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private Object[] values = new Object[32];
+    private int[] conts = new int[32];
+    private int valueTop, contTop;
 
     public ParserAst(List<Token> tokens) {
+        this(TokenBuffer.of(tokens));
+    }
+
+    public ParserAst(TokenBuffer tokens) {
+        this(tokens.stream(), tokens.symbols(), tokens);
+    }
+
+    public ParserAst(TokenStream tokens) {
+        this(tokens, null);
+    }
+
+    public ParserAst(TokenStream tokens, SymbolTable symbols) {
+        this(tokens, symbols, null);
+    }
+
+    private ParserAst(TokenStream tokens, SymbolTable symbols, TokenBuffer buffer) {
         this.tokens = tokens;
+        this.symbols = symbols;
+        this.buffer = buffer;
+    }
+
+    public ParserAst recognizeOnly() {
+        this.build = false;
+        return this;
     }
 
+    // umesto izuzetka na prvoj grešci: zapis u diagnostics(), preskakanje do ';', '$' ili sledeće funkcije i nastavak
+    public ParserAst recovering() {
+        this.recovering = true;
+        return this;
+    }
 
+    public List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    // isti prolaz kao parseProgram(), ali čvorovi idu u int nizove FlatAst-a umesto u objekte
+    public FlatAst parseFlat() {
+        if (buffer == null) throw new IllegalStateException("FlatAst traži parser nad TokenBuffer-om");
+        this.build = false;
+        this.flat = new FlatAst(buffer);
+        parseProgram();
+        return flat;
+    }
 
+    // u recognize modu vraća null; u recovering modu delimičan program, bez delova sa greškom
     public Ast.Program parseProgram() {
         boolean hasBattleMain = false;
-        List<Ast.TopItem> items = new ArrayList<>();
+        List<Ast.TopItem> items = list();
+        int start = height(), done = start;
 
 
         skipTrivia();
@@ -29,18 +121,25 @@ public final class ParserAst {
 
             if (check(TokenType.EOF)) break;
 
-            if (check(TokenType.BATTLE) || check(TokenType.AT_TYPE)) {
-                Ast.FuncDef f = parseFunction();
-                if ("battle".equals(f.name.lexeme)) hasBattleMain = true;
-                items.add(f);
-            } else {
-
-                skipTrivia();
-                if (check(TokenType.EOF)) break;
-
-                if (!(check(TokenType.BATTLE) || check(TokenType.AT_TYPE))) {
-                    throw error(peek(), "očekivao sam definiciju funkcije (battle ili @tip@)");
+            try {
+                if (check(TokenType.BATTLE) || check(TokenType.AT_TYPE)) {
+                    boolean battle = check(TokenType.BATTLE);
+                    Ast.FuncDef f = parseFunction();
+                    if (battle) hasBattleMain = true;
+                    items.add(f);
+                    done = height();
+                } else {
+
+                    skipTrivia();
+                    if (check(TokenType.EOF)) break;
+
+                    if (!(check(TokenType.BATTLE) || check(TokenType.AT_TYPE))) {
+                        throw error(peek(), "očekivao sam definiciju funkcije (battle ili @tip@)");
+                    }
                 }
+            } catch (Sync s) {
+                reset(done);
+                while (!isAtEnd() && !check(TokenType.AT_TYPE, TokenType.BATTLE)) advance();
             }
 
 
@@ -51,35 +150,54 @@ public final class ParserAst {
         skipTrivia();
         consume(TokenType.EOF, "čekao sam kraj fajla");
 
-        return new Ast.Program(hasBattleMain, items);
+        node(FlatAst.Kind.PROGRAM, FlatAst.NONE, height() - start);
+        if (flat != null) flat.finish(hasBattleMain);
+        return build ? new Ast.Program(hasBattleMain, items, symbols) : null;
     }
 
 
 
     private Ast.FuncDef parseFunction() {
         if (match(TokenType.AT_TYPE)) {
-            Token atTok = previous();
-            Ast.Type returnType = atTypeToAstType(atTok);
+            // tip se proverava i u recognize modu
+            Token atTok = tokens.previous();
+            Ast.Type returnType = atTypeToAstType(atTok, prevAt());
 
+            int nameAt = at();
             Token name = consume(TokenType.IDENT, "čekao sam ime funkcije");
             consume(TokenType.LPAREN, "čekao sam '('");
 
-            List<Ast.Param> params = new ArrayList<>();
+            List<Ast.Param> params = list();
+            int mark = height();
             if (!check(TokenType.RPAREN)) {
                 do {
                     Ast.Type t = parseType();
+                    int pnameAt = at();
                     Token pname = consume(TokenType.IDENT, "čekao sam ime parametra");
-                    params.add(new Ast.Param(pname, t));
+                    node(FlatAst.Kind.PARAM, pnameAt, 1);
+                    if (build) params.add(new Ast.Param(pname, t));
                 } while (match(TokenType.COMMA));
             }
             consume(TokenType.RPAREN, "čekao sam ')'");
+            node(FlatAst.Kind.PARAMS, FlatAst.NONE, height() - mark);
             List<Ast.Stmt> body = parseBlock();
-            return new Ast.FuncDef(name, params, returnType, body);
+            node(FlatAst.Kind.FUNC, nameAt, 3);
+            return build ? new Ast.FuncDef(name, params, returnType, body) : null;
         }
 
+        int battleAt = at();
         consume(TokenType.BATTLE, "čekao sam battle");
+        if (!build) {
+            if (flat != null) flat.type(battleAt, Ast.Type.Kind.VOID, 0);
+            node(FlatAst.Kind.PARAMS, FlatAst.NONE, 0);
+            consume(TokenType.LPAREN, "čekao sam '('");
+            consume(TokenType.RPAREN, "čekao sam ')'");
+            parseBlock();
+            node(FlatAst.Kind.FUNC, battleAt, 3);
+            return null;
+        }
 
-        Token name = new Token(TokenType.IDENT, "battle", null, peek().line, peek().colStart, peek().colEnd);
+        Token name = new Token(TokenType.BATTLE, "battle", null, peek().line, peek().colStart, peek().colEnd);
         consume(TokenType.LPAREN, "čekao sam '('");
         consume(TokenType.RPAREN, "čekao sam ')'");
         List<Ast.Stmt> body = parseBlock();
@@ -92,7 +210,7 @@ public final class ParserAst {
         return new Ast.FuncDef(name, List.of(), retVoid, body);
     }
 
-    private Ast.Type atTypeToAstType(Token atTok) {
+    private Ast.Type atTypeToAstType(Token atTok, int atIndex) {
         String lx = atTok.lexeme;
         String inner = lx.substring(1, lx.length() - 1);
         Ast.Type.Kind kind;
@@ -105,74 +223,191 @@ public final class ParserAst {
             case "bezElixira" -> { kind = Ast.Type.Kind.VOID;     baseTok = new Token(TokenType.BEZ_ELIXIRA, inner, null, atTok.line, atTok.colStart, atTok.colEnd); }
             default -> throw error(atTok, "nepoznat tip u @type@");
         }
-        return new Ast.Type(kind, baseTok, 0);
+        if (flat != null) flat.type(atIndex, kind, 0);
+        return build ? new Ast.Type(kind, baseTok, 0) : null;
     }
 
 
 
+    // otvoren blok; leader/cycle naredba čiji se ugnježđeni blok upravo parsira čuva delove u bloku koji je sadrži
+    private static final class Block {
+        final List<Ast.Stmt> stmts;
+        // FlatAst stek: početak bloka i visina posle poslednje završene naredbe
+        int start, done;
+        TokenType owner;
+        int ownerAt;
+        Ast.Expr cond;
+        Ast.Stmt init, step;
+        Ast.Stmt.BeginIf.Arm ifArm;
+        List<Ast.Stmt.BeginIf.Arm> elders;
+
+        Block(List<Ast.Stmt> stmts) { this.stmts = stmts; }
+    }
+
+    // ugnježđeni leader/cycle blokovi idu na eksplicitni stek, ne u rekurziju
     private List<Ast.Stmt> parseBlock() {
-        consume(TokenType.BLOCK_START, "čekao sam '#'");
-        skipNewlines();
+        List<Block> outer = new ArrayList<>();
+        Block cur = openBlock();
+        List<Ast.Stmt> closed = null;
 
-        List<Ast.Stmt> stmts = new ArrayList<>();
-        while (!check(TokenType.BLOCK_END) && !isAtEnd()) {
+        while (true) {
+            Block child = null;
+            boolean end = false;
+            try {
+                if (closed != null) {
+                    // nastavak naredbe čiji je blok upravo zatvoren
+                    List<Ast.Stmt> body = closed;
+                    closed = null;
+                    child = resumeStatement(cur, body);
+                } else if (check(TokenType.BLOCK_END) || isAtEnd()) {
+                    end = true;
+                } else if (match(TokenType.NEWLINE)) {
+                    continue;
+                } else {
+                    child = parseStatement(cur);
+                }
+            } catch (Sync s) {
+                cur.owner = null;
+                reset(cur.done);
+                synchronize();
+                end = check(TokenType.AT_TYPE, TokenType.BATTLE);
+            }
 
-            if (match(TokenType.NEWLINE)) continue;
+            if (child != null) {
+                outer.add(cur);
+                cur = child;
+                continue;
+            }
+            if (!end) {
+                skipNewlines();
+                continue;
+            }
 
-            stmts.add(parseStatement());
-            skipNewlines();
+            closed = closeBlock(cur);
+            if (outer.isEmpty()) return closed;
+            cur = outer.remove(outer.size() - 1);
         }
+    }
+
+    private Block openBlock() {
+        consume(TokenType.BLOCK_START, "čekao sam '#'");
+        skipNewlines();
+        Block block = new Block(list());
+        block.start = block.done = height();
+        return block;
+    }
 
-        consume(TokenType.BLOCK_END, "čekao sam '$'");
-        return stmts;
+    private List<Ast.Stmt> closeBlock(Block block) {
+        // nezatvoren blok u recovering modu: greška se zapisuje, a ono što je pročitano ostaje
+        if (recovering && !check(TokenType.BLOCK_END)) {
+            error(peek(), "čekao sam '$'");
+        } else {
+            consume(TokenType.BLOCK_END, "čekao sam '$'");
+        }
+        node(FlatAst.Kind.BLOCK, FlatAst.NONE, height() - block.start);
+        return block.stmts;
     }
 
 
-    private Ast.Stmt parseStatement() {
+    // prosta naredba se dodaje u blok; za leader/cycle vraća otvoren ugnježđeni blok
+    private Block parseStatement(Block block) {
 
-        if (match(TokenType.KRAJ_BORBE)) return parseReturn();
+        if (match(TokenType.KRAJ_BORBE)) return add(block, parseReturn());
 
         // leader / elder / member / cycle
-        if (match(TokenType.LEADER)) return parseIf();
+        if (match(TokenType.LEADER)) return parseIf(block);
         if (match(TokenType.ELDER))  throw error(peek(), "elder bez leader-a");
         if (match(TokenType.MEMBER)) throw error(peek(), "member bez leader-a");
-        if (match(TokenType.CYCLE))  return parseCycle();
+        if (match(TokenType.CYCLE))  return parseCycle(block);
 
         // deklaracija
-        if (checkTypeKeyword()) return parseVarDecl();
+        if (checkTypeKeyword()) return add(block, parseVarDecl());
         if (check(TokenType.ISPISI_KARTICU) || check(TokenType.UCITAJ_KARTICU)) {
-            return parseBuiltinCallStmt();
+            return add(block, parseBuiltinCallStmt());
         }
 
         // IDENT
         if (check(TokenType.IDENT)) {
 
-            if (checkNext(TokenType.LPAREN))  return parseFuncCallStmt();
-            if (checkNext(TokenType.LBRACKET)) return parseArrayAssign();
-            if (checkNext(TokenType.ASSIGN))   return parseAssignStmt();
+            if (checkNext(TokenType.LPAREN))  return add(block, parseFuncCallStmt());
+            if (checkNext(TokenType.LBRACKET)) return add(block, parseArrayAssign());
+            if (checkNext(TokenType.ASSIGN))   return add(block, parseAssignStmt());
             throw error(peek(), "posle imena očekujem '(', '[' ili '='");
         }
 
         throw error(peek(), "očekivao sam izjavu");
     }
 
+    private Block add(Block block, Ast.Stmt stmt) {
+        block.stmts.add(stmt);
+        block.owner = null;
+        block.done = height();
+        return null;
+    }
+
+    // blok naredbe block.owner je zatvoren: sledeći elder/member blok ili završena naredba
+    private Block resumeStatement(Block block, List<Ast.Stmt> body) {
+        switch (block.owner) {
+            case LEADER -> {
+                node(FlatAst.Kind.ARM, FlatAst.NONE, 2);
+                block.ifArm = build ? new Ast.Stmt.BeginIf.Arm(block.cond, body) : null;
+            }
+            case ELDER -> {
+                node(FlatAst.Kind.ARM, FlatAst.NONE, 2);
+                if (build) block.elders.add(new Ast.Stmt.BeginIf.Arm(block.cond, body));
+            }
+            case MEMBER -> {
+                node(FlatAst.Kind.IF, block.ownerAt, height() - block.done);
+                return add(block, build ? new Ast.Stmt.BeginIf(block.ifArm, block.elders, body) : null);
+            }
+            default -> {
+                node(FlatAst.Kind.CYCLE, block.ownerAt, 4);
+                return add(block, build ? new Ast.Stmt.BeginCycle(block.init, block.cond, block.step, body) : null);
+            }
+        }
+
+        skipNewlines();
+
+        if (match(TokenType.ELDER)) {
+            consume(TokenType.LPAREN, "čekao sam '('");
+            block.cond = parseExpression();
+            consume(TokenType.RPAREN, "čekao sam ')'");
+            block.owner = TokenType.ELDER;
+            return openBlock();
+        }
+
+        if (match(TokenType.MEMBER)) {
+            block.owner = TokenType.MEMBER;
+            return openBlock();
+        }
+
+        node(FlatAst.Kind.IF, block.ownerAt, height() - block.done);
+        return add(block, build ? new Ast.Stmt.BeginIf(block.ifArm, block.elders, null) : null);
+    }
+
     private Ast.Stmt parseFuncCallStmt() {
+        int nameAt = at();
         Token name = consume(TokenType.IDENT, "čekao sam ime funkcije");
         consume(TokenType.LPAREN, "čekao sam '('");
-        List<Ast.Expr> args = new ArrayList<>();
+        List<Ast.Expr> args = list();
+        int mark = height();
         if (!check(TokenType.RPAREN)) {
             do { args.add(parseExpression()); }
             while (match(TokenType.COMMA));
         }
         consume(TokenType.RPAREN, "čekao sam ')'");
         consume(TokenType.SEMICOLON, "čekao sam ';'");
-        return new Ast.Stmt.CallStmt(new Ast.Expr.Call(null, name, args));
+        node(FlatAst.Kind.CALL, nameAt, height() - mark);
+        node(FlatAst.Kind.CALL_STMT, FlatAst.NONE, 1);
+        return build ? new Ast.Stmt.CallStmt(new Ast.Expr.Call(null, name, args)) : null;
     }
 
 
     private Ast.Stmt parseArrayAssign() {
+        int nameAt = at();
         Token name = consume(TokenType.IDENT, "čekao sam ime niza");
-        List<Ast.Expr> indices = new ArrayList<>();
+        List<Ast.Expr> indices = list();
+        int mark = height();
         do {
             consume(TokenType.LBRACKET, "čekao sam '['");
             Ast.Expr idx = parseExpression();
@@ -183,6 +418,8 @@ public final class ParserAst {
         consume(TokenType.ASSIGN, "čekao sam '='");
         Ast.Expr rhs = parseExpression();
         consume(TokenType.SEMICOLON, "čekao sam ';'");
+        node(FlatAst.Kind.ASSIGN, nameAt, height() - mark);
+        if (!build) return null;
 
 
         Ast.Stmt.LValue lv = new Ast.Stmt.LValue(name, indices);
@@ -192,10 +429,13 @@ public final class ParserAst {
 
 
     private Ast.Stmt parseAssignStmt() {
+        int nameAt = at();
         Token name = consume(TokenType.IDENT, "čekao sam ime");
         consume(TokenType.ASSIGN, "čekao sam '='");
         Ast.Expr rhs = parseExpression();
         consume(TokenType.SEMICOLON, "čekao sam ';'");
+        node(FlatAst.Kind.ASSIGN, nameAt, 1);
+        if (!build) return null;
 
         Ast.Stmt.LValue lv = new Ast.Stmt.LValue(name, List.of());
         return new Ast.Stmt.Assign(rhs, lv);
@@ -204,181 +444,90 @@ public final class ParserAst {
 
     // RETURN
     private Ast.Stmt.Return parseReturn() {
+        int kwAt = prevAt();
         if (match(TokenType.SEMICOLON)) {
-            return new Ast.Stmt.Return(null);
+            node(FlatAst.Kind.RETURN, kwAt, 0);
+            return build ? new Ast.Stmt.Return(null) : null;
         }
 
         Ast.Expr expr = parseExpression();
         consume(TokenType.SEMICOLON, "čekao sam ';'");
-        return new Ast.Stmt.Return(expr);
+        node(FlatAst.Kind.RETURN, kwAt, 1);
+        return build ? new Ast.Stmt.Return(expr) : null;
     }
 
 
     // IF / ELDER / MEMBER
-    private Ast.Stmt.BeginIf parseIf() {
+    private Block parseIf(Block block) {
         // LEADER je već match-ovan u parseStatement()
 
         // leader
+        block.ownerAt = prevAt();
         consume(TokenType.LPAREN, "čekao sam '('");
-        Ast.Expr cond = parseExpression();
+        block.cond = parseExpression();
         consume(TokenType.RPAREN, "čekao sam ')'");
-        List<Ast.Stmt> ifBlock = parseBlock();
-
-        Ast.Stmt.BeginIf.Arm ifArm = new Ast.Stmt.BeginIf.Arm(cond, ifBlock);
-        List<Ast.Stmt.BeginIf.Arm> elders = new ArrayList<>();
-        List<Ast.Stmt> elseBlock = null;
-
-
-        skipNewlines();
-
-
-        while (match(TokenType.ELDER)) {
-            consume(TokenType.LPAREN, "čekao sam '('");
-            Ast.Expr ec = parseExpression();
-            consume(TokenType.RPAREN, "čekao sam ')'");
-            List<Ast.Stmt> eb = parseBlock();
-            elders.add(new Ast.Stmt.BeginIf.Arm(ec, eb));
-
-
-            skipNewlines();
-        }
-
-
-        if (match(TokenType.MEMBER)) {
-            elseBlock = parseBlock();
-
-        }
-
-        return new Ast.Stmt.BeginIf(ifArm, elders, elseBlock);
+        block.owner = TokenType.LEADER;
+        block.elders = list();
+        return openBlock();
     }
 
 
     // CYCLE
-    private Ast.Stmt.BeginCycle parseCycle() {
+    private Block parseCycle(Block block) {
+        int cycleAt = prevAt();
         consume(TokenType.LPAREN, "čekao sam '('");
 
         // INIT
         Ast.Stmt init = null;
         if (!check(TokenType.SEMICOLON)) {
             init = parseCycleInitOrStep();
-        }
+        } else none();
         consume(TokenType.SEMICOLON, "čekao sam ';' posle init dela cycle()");
 
         // COND
         Ast.Expr cond = null;
         if (!check(TokenType.SEMICOLON)) {
             cond = parseExpression();
-        }
+        } else none();
         consume(TokenType.SEMICOLON, "čekao sam ';' posle cond dela cycle()");
 
         // STEP
         Ast.Stmt step = null;
         if (!check(TokenType.RPAREN)) {
             step = parseCycleInitOrStep();  // ← vraća Stmt; bez ';'
-        }
+        } else none();
         consume(TokenType.RPAREN, "čekao sam ')'");
 
-        List<Ast.Stmt> body = parseBlock();
-        return new Ast.Stmt.BeginCycle(init, cond, step, body);
-    }
-
-
-    private void parseCycleInit() {
-        if (checkTypeKeyword()) {
-            parseVarDecl();
-            return;
-        }
-
-        Token id = consume(TokenType.IDENT, "čekao sam ime u init delu cycle()");
-        consume(TokenType.ASSIGN, "čekao sam '=' u init delu cycle()");
-        parseExpression();
-        consume(TokenType.SEMICOLON, "čekao sam ';' posle init dela cycle()");
+        block.owner = TokenType.CYCLE;
+        block.ownerAt = cycleAt;
+        block.init = init;
+        block.cond = cond;
+        block.step = step;
+        return openBlock();
     }
 
-    private Ast.Stmt parseCycleStep() {
-        // prefix ++/--
-        if (match(TokenType.INCREMENT, TokenType.DECREMENT)) {
-            consume(TokenType.IDENT, "čekao sam identifikator posle ++/-- u step delu");
-            return new Ast.Stmt.CallStmt(null);
-        }
-
-        if (check(TokenType.IDENT)) {
-            // postfix i++ / i--
-            if (checkNext(TokenType.INCREMENT) || checkNext(TokenType.DECREMENT)) {
-                consume(TokenType.IDENT, "čekao sam ime u postfix ++/--");
-                if (check(TokenType.INCREMENT)) consume(TokenType.INCREMENT, "očekivao sam '++'");
-                else consume(TokenType.DECREMENT, "očekivao sam '--'");
-                return new Ast.Stmt.CallStmt(null);
-            }
-
-
-            if (checkNext(TokenType.LPAREN)) {
-
-                Token name = consume(TokenType.IDENT, "čekao sam ime funkcije");
-                consume(TokenType.LPAREN, "čekao sam '('");
-                if (!check(TokenType.RPAREN)) {
-                    parseExpression();
-                    while (match(TokenType.COMMA)) parseExpression();
-                }
-                consume(TokenType.RPAREN, "čekao sam ')'");
-                return new Ast.Stmt.CallStmt(null);
-            }
-
-
-            consume(TokenType.IDENT, "čekao sam ime u step delu");
-            consume(TokenType.ASSIGN, "čekao sam '=' u step delu");
-            parseExpression();
-            return new Ast.Stmt.CallStmt(null);
-        }
-
-        throw error(peek(), "očekivao sam izraz (++/--, poziv ili dodelu) u step delu cycle()");
-    }
 
     // VAR DECL
     private Ast.Stmt.VarDecl parseVarDecl() {
         Ast.Type t = parseType();
 
-        List<Ast.Expr> dims = new ArrayList<>();
+        int nameAt = at();
         Token name = consume(TokenType.IDENT, "čekao sam ime promenljive");
 
 
-        if (match(TokenType.ASSIGN)) {
-            parseExpression();
-        }
+        // inicijalizator je drugo dete VAR_DECL
+        Ast.Expr init = null;
+        boolean hasInit = match(TokenType.ASSIGN);
+        if (hasInit) init = parseExpression();
 
         consume(TokenType.SEMICOLON, "čekao sam ';'");
+        node(FlatAst.Kind.VAR_DECL, nameAt, hasInit ? 2 : 1);
+        if (!build) return null;
+        List<Ast.Expr> dims = new ArrayList<>();
         List<Token> names = new ArrayList<>();
         names.add(name);
 
-        return new Ast.Stmt.VarDecl(t, dims, names);
-    }
-
-
-    // ASSIGN OR CALL
-    private Ast.Stmt parseAssignOrCall() {
-        Ast.Expr left = parseExpression();
-
-        if (match(TokenType.ASSIGN)) {
-            Ast.Stmt.LValue lv = parseLValue();
-            consume(TokenType.SEMICOLON, "čekao sam ';'");
-            return new Ast.Stmt.Assign(left, lv);
-        }
-
-        consume(TokenType.SEMICOLON, "čekao sam ';'");
-        return new Ast.Stmt.CallStmt((Ast.Expr.Call) left);
-    }
-
-    private Ast.Stmt.LValue parseLValue() {
-        Token name = consume(TokenType.IDENT, "čekao sam ime");
-
-        List<Ast.Expr> indices = new ArrayList<>();
-        while (match(TokenType.LBRACKET)) {
-            Ast.Expr e = parseExpression();
-            consume(TokenType.RBRACKET, "čekao sam ']'");
-            indices.add(e);
-        }
-
-        return new Ast.Stmt.LValue(name, indices);
+        return new Ast.Stmt.VarDecl(t, dims, names, init);
     }
 
 
@@ -386,6 +535,7 @@ public final class ParserAst {
     private Ast.Type parseType() {
         Token base = null;
         Ast.Type.Kind kind;
+        int baseAt = at();
 
         if (match(TokenType.BROJ_ELIXIRA)) { kind = Ast.Type.Kind.INT; base = previous(); }
         else if (match(TokenType.DOUBLE_ELIXIR)) { kind = Ast.Type.Kind.DOUBLE; base = previous(); }
@@ -399,8 +549,9 @@ public final class ParserAst {
             consume(TokenType.RBRACKET, "čekao sam ']'");
             rank++;
         }
+        if (flat != null) flat.type(baseAt, kind, rank);
 
-        return new Ast.Type(kind, base, rank);
+        return build ? new Ast.Type(kind, base, rank) : null;
     }
 
     private boolean checkTypeKeyword() {
@@ -413,173 +564,230 @@ public final class ParserAst {
 
 
     // EXPRESSION
-    private Ast.Expr parseExpression() { return parseTernary(); }
-
-
-    private Ast.Expr parseTernary() {
-        Ast.Expr base = parseOr();
-
-        if (match(TokenType.LBRACE_TERNARY)) {
-            Ast.Expr cond = parseExpression();
-            consume(TokenType.TERNARY_QMARK, "čekao sam '?'");
-            Ast.Expr thenE = parseExpression();
-            consume(TokenType.TERNARY_COLON, "čekao sam ':'");
-            Ast.Expr elseE = parseExpression();
-            consume(TokenType.RBRACE_TERNARY, "čekao sam '}'");
-            return new Ast.Expr.Ternary(cond, thenE, elseE);
+    // bez rekurzije: ugnježđene zagrade, argumenti, indeksi i delovi ternarnog izraza čekaju na eksplicitnom steku,
+    // pa dubina ugnježđenja ne zavisi od steka niti
+    private Ast.Expr parseExpression() {
+        valueTop = 0;
+        contTop = 0;
+        pushCont(K_DONE);
+        while (true) {
+            Ast.Expr e = parseOperand();
+            if (e != OPEN) e = reduce(e);
+            if (e != OPEN) return e;
         }
-        return base;
     }
 
-    private Ast.Expr parseOr() {
-        Ast.Expr e = parseAnd();
-        while (match(TokenType.LOG_OR)) {
-            Token op = previous();
-            Ast.Expr right = parseAnd();
-            e = new Ast.Expr.Binary(e, op, right);
+    // prefiksni operatori pa primarni izraz; OPEN ako je otvoren ugnježđeni izraz
+    private Ast.Expr parseOperand() {
+        while (PREFIX[tokens.peekType().ordinal()]) {
+            pushCont(at());
+            tokens.skip();
+            pushValue(previous());
+            pushCont(K_UNARY);
         }
-        return e;
+        return parsePrimary();
     }
 
-    private Ast.Expr parseAnd() {
-        Ast.Expr e = parseEquality();
-        while (match(TokenType.LOG_AND)) {
-            Token op = previous();
-            Ast.Expr right = parseEquality();
-            e = new Ast.Expr.Binary(e, op, right);
-        }
-        return e;
-    }
+    // završen operand se spaja sa operatorima koji ga čekaju; OPEN ako se traži sledeći operand,
+    // inače vrednost celog izraza (K_DONE)
+    private Ast.Expr reduce(Ast.Expr e) {
+        while (true) {
+            while (conts[contTop - 1] == K_UNARY) {
+                contTop--;
+                node(FlatAst.Kind.UNARY, conts[--contTop], 1);
+                Token op = (Token) values[--valueTop];
+                e = build ? new Ast.Expr.Unary(op, e) : null;
+            }
 
-    private Ast.Expr parseEquality() {
-        Ast.Expr e = parseComparison();
-        while (match(TokenType.EQ, TokenType.NEQ)) {
-            Token op = previous();
-            Ast.Expr r = parseComparison();
-            e = new Ast.Expr.Binary(e, op, r);
-        }
-        return e;
-    }
+            // Pratt: operator koji veže jače od onog na steku čeka svoj desni operand (leva asocijativnost)
+            int power = BINDING_POWER[tokens.peekType().ordinal()];
+            while (conts[contTop - 1] <= MAX_POWER && conts[contTop - 1] >= power) {
+                contTop--;
+                node(FlatAst.Kind.BINARY, conts[--contTop], 2);
+                Token op = (Token) values[--valueTop];
+                Ast.Expr left = (Ast.Expr) values[--valueTop];
+                e = build ? new Ast.Expr.Binary(left, op, e) : null;
+            }
+            if (power > 0) {
+                pushCont(at());
+                tokens.skip();
+                pushValue(e);
+                pushValue(previous());
+                pushCont(power);
+                return OPEN;
+            }
 
-    private Ast.Expr parseComparison() {
-        Ast.Expr e = parseTerm();
-        while (match(TokenType.LT, TokenType.LE, TokenType.GT, TokenType.GE)) {
-            Token op = previous();
-            Ast.Expr r = parseTerm();
-            e = new Ast.Expr.Binary(e, op, r);
-        }
-        return e;
-    }
+            // ternarni oblik 'osnova { uslov ? a : b }'; osnova se ne čuva
+            if (match(TokenType.LBRACE_TERNARY)) {
+                if (flat != null) flat.pop();
+                pushCont(K_COND);
+                return OPEN;
+            }
 
-    private Ast.Expr parseTerm() {
-        Ast.Expr e = parseFactor();
-        while (match(TokenType.ADD, TokenType.SUB)) {
-            Token op = previous();
-            Ast.Expr r = parseFactor();
-            e = new Ast.Expr.Binary(e, op, r);
+            // izraz je završen: nastavak sa vrha steka kaže čemu pripada
+            while (true) {
+                int k = conts[--contTop];
+                if (k == K_DONE) return e;
+                if (k == K_COND) {
+                    consume(TokenType.TERNARY_QMARK, "čekao sam '?'");
+                    pushValue(e);
+                    pushCont(K_THEN);
+                    return OPEN;
+                }
+                if (k == K_THEN) {
+                    consume(TokenType.TERNARY_COLON, "čekao sam ':'");
+                    pushValue(e);
+                    pushCont(K_ELSE);
+                    return OPEN;
+                }
+                if (k == K_ELSE) {
+                    consume(TokenType.RBRACE_TERNARY, "čekao sam '}'");
+                    node(FlatAst.Kind.TERNARY, FlatAst.NONE, 3);
+                    Ast.Expr thenE = (Ast.Expr) values[--valueTop];
+                    Ast.Expr cond = (Ast.Expr) values[--valueTop];
+                    e = build ? new Ast.Expr.Ternary(cond, thenE, e) : null;
+                    continue;
+                }
+                break;
+            }
+            e = closeNested(conts[contTop], e);
+            if (e == OPEN) return OPEN;
         }
-        return e;
     }
 
-    private Ast.Expr parseFactor() {
-        Ast.Expr e = parseUnary();
-        while (match(TokenType.MULTIPLY, TokenType.DIVIDE, TokenType.PERCENT)) {
-            Token op = previous();
-            Ast.Expr r = parseUnary();
-            e = new Ast.Expr.Binary(e, op, r);
+    // izraz unutar zagrada, argumenata ili indeksa je završen; vraća primarni izraz ili OPEN za sledeći argument/indeks
+    @SuppressWarnings("unchecked")
+    private Ast.Expr closeNested(int k, Ast.Expr e) {
+        if (k == K_GROUP) {
+            consume(TokenType.RPAREN, "čekao sam ')'");
+            node(FlatAst.Kind.GROUP, FlatAst.NONE, 1);
+            return build ? new Ast.Expr.Grouping(e) : null;
+        }
+        List<Ast.Expr> list = (List<Ast.Expr>) values[valueTop - 1];
+        if (k == K_CALL) {
+            list.add(e);
+            if (match(TokenType.COMMA)) {
+                pushCont(K_CALL);
+                return OPEN;
+            }
+            consume(TokenType.RPAREN, "čekao sam ')'");
+            closeFlat(FlatAst.Kind.CALL);
+            valueTop -= 2;
+            return build ? new Ast.Expr.Call(null, (Token) values[valueTop], list) : null;
         }
-        return e;
-    }
-
-    private Ast.Expr parseUnary() {
-        if (match(TokenType.LOG_NOT, TokenType.ADD, TokenType.SUB)) {
-            Token op = previous();
-            Ast.Expr r = parseUnary();
-            return new Ast.Expr.Unary(op, r);
+        consume(TokenType.RBRACKET, "");
+        list.add(e);
+        if (match(TokenType.LBRACKET)) {
+            pushCont(K_INDEX);
+            return OPEN;
         }
-        return parsePrimary();
+        closeFlat(FlatAst.Kind.INDEX);
+        valueTop -= 2;
+        return build ? new Ast.Expr.Index((Token) values[valueTop], list) : null;
     }
 
     private Ast.Expr parsePrimary() {
+        int at = at();
+        switch (tokens.peekType()) {
+            // vrednosti brojčanih literala je izračunao lexer
+            case DOUBLE_LIT -> {
+                Token tok = advance();
+                node(FlatAst.Kind.DOUBLE, at, 0);
+                return build ? new Ast.Expr.LiteralDouble(tok, ((Number) tok.literal).doubleValue()) : null;
+            }
+            case INT_LIT, HEX_LIT, OCT_LIT -> {
+                Token tok = advance();
+                node(FlatAst.Kind.INT, at, 0);
+                return build ? new Ast.Expr.LiteralInt(tok, ((Number) tok.literal).longValue()) : null;
+            }
+            case CHAR_LIT -> {
+                Token tok = advance();
+                node(FlatAst.Kind.CHAR, at, 0);
+                return build ? new Ast.Expr.LiteralChar(tok, tok.lexeme.codePointAt(0)) : null;
+            }
+            case STRING_LIT -> {
+                Token tok = advance();
+                node(FlatAst.Kind.STRING, at, 0);
+                return build ? new Ast.Expr.LiteralString(tok, tok.literal.toString()) : null;
+            }
+            // ident + call/index
+            case IDENT -> {
+                Token name = advance();
+
+                // CALL
+                if (match(TokenType.LPAREN)) {
+                    List<Ast.Expr> args = list();
+                    if (!check(TokenType.RPAREN)) {
+                        pushValue(name);
+                        pushValue(args);
+                        pushCont(at);
+                        pushCont(height());
+                        pushCont(K_CALL);
+                        return OPEN;
+                    }
+                    consume(TokenType.RPAREN, "čekao sam ')'");
+                    node(FlatAst.Kind.CALL, at, 0);
+                    return build ? new Ast.Expr.Call(null, name, args) : null;
+                }
 
-        if (match(TokenType.DOUBLE_LIT)) {
-            Token tok = previous();
-            double val = Double.parseDouble(tok.lexeme);
-            return new Ast.Expr.LiteralDouble(tok, val);
-        }
-
-
-        if (match(TokenType.HEX_LIT))  return new Ast.Expr.LiteralInt(previous(), 0L);
-        if (match(TokenType.OCT_LIT))  return new Ast.Expr.LiteralInt(previous(), 0L);
-
-        // literal int
-        if (match(TokenType.INT_LIT)) {
-            Token tok = previous();
-            long val = Long.parseLong(tok.lexeme);
-            return new Ast.Expr.LiteralInt(tok, val);
-        }
-
-        // char
-        if (match(TokenType.CHAR_LIT)) {
-            Token tok = previous();
-            return new Ast.Expr.LiteralChar(tok, tok.lexeme.codePointAt(0));
-        }
-
-        // string
-        if (match(TokenType.STRING_LIT)) {
-            Token tok = previous();
-            return new Ast.Expr.LiteralString(tok, tok.literal.toString());
-        }
-
-        // ident + call/index
-        if (match(TokenType.IDENT)) {
-            Token name = previous();
-
-            // CALL
-            if (match(TokenType.LPAREN)) {
-                List<Ast.Expr> args = new ArrayList<>();
-                if (!check(TokenType.RPAREN)) {
-                    do args.add(parseExpression());
-                    while (match(TokenType.COMMA));
+                // index
+                if (match(TokenType.LBRACKET)) {
+                    pushValue(name);
+                    pushValue(list());
+                    pushCont(at);
+                    pushCont(height());
+                    pushCont(K_INDEX);
+                    return OPEN;
                 }
-                consume(TokenType.RPAREN, "čekao sam ')'");
-                return new Ast.Expr.Call(null, name, args);
+                node(FlatAst.Kind.IDENT, at, 0);
+                return build ? new Ast.Expr.Ident(name) : null;
             }
-
-            // index
-            List<Ast.Expr> idx = new ArrayList<>();
-            while (match(TokenType.LBRACKET)) {
-                Ast.Expr e = parseExpression();
-                consume(TokenType.RBRACKET, "");
-                idx.add(e);
+            // expr
+            case LPAREN -> {
+                advance();
+                pushCont(K_GROUP);
+                return OPEN;
             }
-            if (!idx.isEmpty()) return new Ast.Expr.Index(name, idx);
-
-            return new Ast.Expr.Ident(name);
+            default -> throw error(peek(), "neočekivan token u izrazu");
         }
+    }
 
-        // expr
-        if (match(TokenType.LPAREN)) {
-            Ast.Expr e = parseExpression();
-            consume(TokenType.RPAREN, "čekao sam ')'");
-            return new Ast.Expr.Grouping(e);
-        }
+    private void pushValue(Object v) {
+        if (valueTop == values.length) values = Arrays.copyOf(values, valueTop * 2);
+        values[valueTop++] = v;
+    }
 
-        throw error(peek(), "neočekivan token u izrazu");
+    private void pushCont(int k) {
+        if (contTop == conts.length) conts = Arrays.copyOf(conts, contTop * 2);
+        conts[contTop++] = k;
     }
-    private Ast.Expr.Call parseBuiltinCall() {
-        Token callee = advance();
-        consume(TokenType.LPAREN, "čekao sam '('");
-        List<Ast.Expr> args = new ArrayList<>();
-        if (!check(TokenType.RPAREN)) {
-            do { args.add(parseExpression()); } while (match(TokenType.COMMA));
-        }
-        consume(TokenType.RPAREN, "čekao sam ')'");
-        return new Ast.Expr.Call(null, callee, args);
+
+    // ispod K_CALL/K_INDEX su indeks imena i visina FlatAst steka pre prvog argumenta
+    private void closeFlat(FlatAst.Kind kind) {
+        int mark = conts[--contTop];
+        int nameAt = conts[--contTop];
+        node(kind, nameAt, height() - mark);
+    }
+
+    // FlatAst gradnja; bez FlatAst-a ništa ne rade
+
+    private void node(FlatAst.Kind kind, int token, int children) {
+        if (flat != null) flat.node(kind, token, children);
     }
 
+    private void none() {
+        if (flat != null) flat.push(FlatAst.NONE);
+    }
+
+    private int height() { return flat != null ? flat.height() : 0; }
 
+    private void reset(int height) {
+        if (flat != null) flat.reset(height);
+    }
 
+    // indeks tekućeg i prethodnog tokena u baferu
+    private int at() { return tokens.position(); }
+    private int prevAt() { return tokens.position() - 1; }
     private boolean match(TokenType... types) {
         for (TokenType t : types) {
             if (check(t)) { advance(); return true; }
@@ -588,7 +796,7 @@ public final class ParserAst {
     }
 
     private boolean check(TokenType... types) {
-        TokenType cur = peek().type;
+        TokenType cur = tokens.peekType();
         for (TokenType t : types) if (cur == t) return true;
         return false;
     }
@@ -601,105 +809,82 @@ public final class ParserAst {
     }
 
     private Token advance() {
-        if (!isAtEnd()) current++;
+        // na EOF nema pomeranja; prazan program nema prethodni token
+        if (isAtEnd()) return build ? peek() : null;
+        tokens.skip();
         return previous();
     }
 
-    private boolean isAtEnd() { return peek().type == TokenType.EOF; }
-    private Token peek() { return tokens.get(current); }
-    private Token previous() { return tokens.get(current - 1); }
-
-    private RuntimeException error(Token t, String msg) {
-        return new RuntimeException("Parser error at line " + t.line + ": " + msg);
-    }
-    private void skipNewlines() {
-        while (match(TokenType.NEWLINE)) {  }
-    }
-    private Ast.Stmt parseInitOrSimpleInCycle() {
-        if (checkTypeKeyword()) {
-            return parseVarDecl();
-        }
+    private boolean isAtEnd() { return tokens.peekType() == TokenType.EOF; }
+    private Token peek() { return tokens.peek(); }
+    // u recognize modu se Token objekti ne prave
+    private Token previous() { return build ? tokens.previous() : null; }
 
-        //  prefiks ++/--
-        if (match(TokenType.INCREMENT, TokenType.DECREMENT)) {
-            Token op = previous();
-            Token id = consume(TokenType.IDENT, "čekao sam identifikator posle " + op.lexeme);
-            consume(TokenType.SEMICOLON, "čekao sam ';'");
-            return new Ast.Stmt.CallStmt(new Ast.Expr.Call(null, id, List.of()));
-        }
+    @SuppressWarnings("unchecked")
+    private <T> List<T> list() { return build ? new ArrayList<>() : (List<T>) DISCARD; }
 
-        //  postfix i++ / i--
-        if (check(TokenType.IDENT) && (checkNext(TokenType.INCREMENT) || checkNext(TokenType.DECREMENT))) {
-            Token id = consume(TokenType.IDENT, "čekao sam ime");
-            if (check(TokenType.INCREMENT)) {
-                consume(TokenType.INCREMENT, "očekivao sam '++'");
-            } else {
-                consume(TokenType.DECREMENT, "očekivao sam '--'");
-            }
-            consume(TokenType.SEMICOLON, "čekao sam ';'");
-            return new Ast.Stmt.CallStmt(new Ast.Expr.Call(null, id, List.of()));
-        }
-
-
-        if (check(TokenType.IDENT) && checkNext(TokenType.LPAREN)) {
-            Token name = consume(TokenType.IDENT, "čekao sam ime funkcije");
-            consume(TokenType.LPAREN, "čekao sam '('");
-            List<Ast.Expr> args = new ArrayList<>();
-            if (!check(TokenType.RPAREN)) {
-                do { args.add(parseExpression()); } while (match(TokenType.COMMA));
+    private RuntimeException error(Token t, String msg) {
+        if (recovering) {
+            // više grešaka na istom tokenu je posledica prve
+            Diagnostic last = diagnostics.isEmpty() ? null : diagnostics.get(diagnostics.size() - 1);
+            if (last == null || last.line != t.line || last.col != t.colStart) {
+                diagnostics.add(new Diagnostic(Diagnostic.Code.SYNTAX, msg, t.line, t.colStart, -1, t.colEnd - t.colStart + 1));
             }
-            consume(TokenType.RPAREN, "čekao sam ')'");
-            consume(TokenType.SEMICOLON, "čekao sam ';'");
-            return new Ast.Stmt.CallStmt(new Ast.Expr.Call(null, name, args));
+            return SYNC;
         }
-
-
-        if (check(TokenType.IDENT)) {
-            Token name = consume(TokenType.IDENT, "čekao sam ime");
-            List<Ast.Expr> indices = new ArrayList<>();
-            while (match(TokenType.LBRACKET)) {
-                Ast.Expr e = parseExpression();
-                consume(TokenType.RBRACKET, "čekao sam ']'");
-                indices.add(e);
+        return new RuntimeException("PARSER ERROR kod '" + t.lexeme + "' – " + msg +
+                " (linija " + t.line + ", kol " + t.colStart + ")");
+    }
+    // panic mode: preskače do kraja naredbe (';' ili zatvoren '#...$'), do '$' tekućeg bloka ili do sledeće funkcije
+    private void synchronize() {
+        int depth = 0;
+        while (!isAtEnd()) {
+            TokenType t = tokens.peekType();
+            if (t == TokenType.AT_TYPE || t == TokenType.BATTLE) return;
+            if (t == TokenType.BLOCK_END) {
+                if (depth == 0) return;
+                advance();
+                if (--depth == 0) return;
+                continue;
             }
-            consume(TokenType.ASSIGN, "čekao sam '='");
-            Ast.Expr rhs = parseExpression();
-            consume(TokenType.SEMICOLON, "čekao sam ';'");
-            Ast.Stmt.LValue lv = new Ast.Stmt.LValue(name, indices);
-            return new Ast.Stmt.Assign(rhs, lv);
+            if (t == TokenType.BLOCK_START) depth++;
+            advance();
+            if (t == TokenType.SEMICOLON && depth == 0) return;
         }
+    }
 
-        throw error(peek(), "očekivao sam init/step naredbu u cycle()");
+    private void skipNewlines() {
+        while (match(TokenType.NEWLINE)) {  }
     }
     private boolean checkNext(TokenType type) {
         if (isAtEnd()) return false;
-        if (current + 1 >= tokens.size()) return false;
-        return tokens.get(current + 1).type == type;
+        return tokens.peekNextType() == type;
     }
 
 
-    private Token peekNext() {
-        if (current + 1 >= tokens.size()) return tokens.get(tokens.size() - 1);
-        return tokens.get(current + 1);
-    }
     private Ast.Stmt parseBuiltinCallStmt() {
+        int calleeAt = at();
         Token callee = advance();
         consume(TokenType.LPAREN, "čekao sam '('");
-        List<Ast.Expr> args = new ArrayList<>();
+        List<Ast.Expr> args = list();
+        int mark = height();
         if (!check(TokenType.RPAREN)) {
             do { args.add(parseExpression()); }
             while (match(TokenType.COMMA));
         }
         consume(TokenType.RPAREN, "čekao sam ')'");
         consume(TokenType.SEMICOLON, "čekao sam ';'");
+        node(FlatAst.Kind.CALL, calleeAt, height() - mark);
+        node(FlatAst.Kind.CALL_STMT, FlatAst.NONE, 1);
 
 
-        return new Ast.Stmt.CallStmt(new Ast.Expr.Call(callee, callee, args));
+        return build ? new Ast.Stmt.CallStmt(new Ast.Expr.Call(callee, callee, args)) : null;
     }
     private void skipTrivia() {
         while (true) {
             if (match(TokenType.NEWLINE)) continue;
-            if (!isAtEnd()) {
+            // samo tokeni sa sopstvenim tekstom mogu imati prazan lexeme
+            if (!isAtEnd() && TokenBuffer.hasOwnText(tokens.peekType())) {
                 String lx = peek().lexeme;
                 if (lx != null && lx.isBlank()) { advance(); continue; }
             }
@@ -711,17 +896,28 @@ public final class ParserAst {
         if (checkTypeKeyword()) {
             Ast.Type t = parseType();
 
-
-            List<Ast.Expr> dims = new ArrayList<>();
-
+            int nameAt = at();
             Token name = consume(TokenType.IDENT, "čekao sam ime promenljive");
 
 
             Ast.Expr initExpr = null;
+            boolean assign = false;
             if (match(TokenType.ASSIGN)) {
                 initExpr = parseExpression();
+                assign = true;
+            }
+            if (flat != null) {
+                // dodela sa deklaracijom ne čuva tip
+                if (assign) {
+                    int value = flat.pop();
+                    flat.pop();
+                    flat.push(value);
+                }
+                flat.node(assign ? FlatAst.Kind.ASSIGN : FlatAst.Kind.VAR_DECL, nameAt, 1);
             }
-            if (initExpr == null) {
+            if (!build) return null;
+            List<Ast.Expr> dims = new ArrayList<>();
+            if (!assign) {
 
                 List<Token> names = new ArrayList<>();
                 names.add(name);
@@ -729,36 +925,45 @@ public final class ParserAst {
             } else {
 
                 Ast.Stmt.LValue lv = new Ast.Stmt.LValue(name, List.of());
-                return new Ast.Stmt.Assign(initExpr, lv);
+                return new Ast.Stmt.Assign(initExpr, lv, t);
             }
         }
 
 
-        if (match(TokenType.INCREMENT, TokenType.DECREMENT)) {
-            Token op = previous();
-            Token name = consume(TokenType.IDENT, "čekao sam identifikator posle " + op.lexeme);
-            return makeIncDecAssign(name, op.type == TokenType.INCREMENT);
+        if (check(TokenType.INCREMENT, TokenType.DECREMENT)) {
+            boolean increment = check(TokenType.INCREMENT);
+            int opAt = at();
+            advance();
+            int nameAt = at();
+            Token name = consume(TokenType.IDENT, increment
+                    ? "čekao sam identifikator posle ++"
+                    : "čekao sam identifikator posle --");
+            return makeIncDecAssign(name, increment, nameAt, opAt);
         }
 
 
         if (check(TokenType.IDENT)) {
+            int nameAt = at();
             Token name = advance();
 
             // postfix i++ / i--
-            if (match(TokenType.INCREMENT)) return makeIncDecAssign(name, true);
-            if (match(TokenType.DECREMENT)) return makeIncDecAssign(name, false);
+            if (match(TokenType.INCREMENT)) return makeIncDecAssign(name, true, nameAt, prevAt());
+            if (match(TokenType.DECREMENT)) return makeIncDecAssign(name, false, nameAt, prevAt());
 
+            int mark = height();
             if (match(TokenType.LPAREN)) {
-                List<Ast.Expr> args = new ArrayList<>();
+                List<Ast.Expr> args = list();
                 if (!check(TokenType.RPAREN)) {
                     do { args.add(parseExpression()); } while (match(TokenType.COMMA));
                 }
                 consume(TokenType.RPAREN, "čekao sam ')'");
-                return new Ast.Stmt.CallStmt(new Ast.Expr.Call(null, name, args));
+                node(FlatAst.Kind.CALL, nameAt, height() - mark);
+                node(FlatAst.Kind.CALL_STMT, FlatAst.NONE, 1);
+                return build ? new Ast.Stmt.CallStmt(new Ast.Expr.Call(null, name, args)) : null;
             }
 
 
-            List<Ast.Expr> idx = new ArrayList<>();
+            List<Ast.Expr> idx = list();
             while (match(TokenType.LBRACKET)) {
                 Ast.Expr e = parseExpression();
                 consume(TokenType.RBRACKET, "čekao sam ']'");
@@ -768,6 +973,8 @@ public final class ParserAst {
 
             if (match(TokenType.ASSIGN)) {
                 Ast.Expr rhs = parseExpression();
+                node(FlatAst.Kind.ASSIGN, nameAt, height() - mark);
+                if (!build) return null;
                 Ast.Stmt.LValue lv = new Ast.Stmt.LValue(name, idx);
                 return new Ast.Stmt.Assign(rhs, lv);
             }
@@ -777,12 +984,19 @@ public final class ParserAst {
 
         throw error(peek(), "očekivao sam naredbu u init/step delu cycle()");
     }
-    private Ast.Stmt makeIncDecAssign(Token name, boolean increment) {
+    private Ast.Stmt makeIncDecAssign(Token name, boolean increment, int nameAt, int opAt) {
+        if (flat != null) {
+            flat.node(FlatAst.Kind.IDENT, nameAt, 0);
+            flat.node(FlatAst.Kind.INT, opAt, 0);
+            flat.node(FlatAst.Kind.BINARY, opAt, 2);
+            flat.node(FlatAst.Kind.ASSIGN, nameAt, 1);
+        }
+        if (!build) return null;
         Ast.Expr id = new Ast.Expr.Ident(name);
         Token opTok = increment
                 ? new Token(TokenType.ADD, "+", null, name.line, name.colStart, name.colEnd)
                 : new Token(TokenType.SUB, "-", null, name.line, name.colStart, name.colEnd);
-        Token oneTok = new Token(TokenType.INT_LIT, "1", 1L, name.line, name.colStart, name.colEnd);
+        Token oneTok = new Token(TokenType.INT_LIT, "1", 1, name.line, name.colStart, name.colEnd);
 
         Ast.Expr one = new Ast.Expr.LiteralInt(oneTok, 1L);
         Ast.Expr rhs = new Ast.Expr.Binary(id, opTok, one);
@@ -0,0 +1,582 @@
+package semantic;
+
+import diagnostic.Diagnostic;
+import lexer.token.SymbolTable;
+import lexer.token.Token;
+import lexer.token.TokenType;
+import parser.ast.Ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// jedan prolaz posle parsera: opsezi imena, slot svake promenljive i tip svakog izraza se upisuju u AST,
+// a nedeklarisana imena i neslaganja tipova idu u diagnostics()
+//
+// okvir funkcije: parametri u slotovima 0..n-1, pa promenljive blokova; slotovi zatvorenog bloka se ponovo koriste
+// globalne promenljive (TopVarDecl) su u posebnom okviru: depth 1 iz funkcije, depth 0 van nje
+// slovoKartice se računa kao ceo broj; brojElixira i slovoKartice se šire u doubleElixir, obrnuto ne
+//
+// imena se traže po id-u (Token.symbol), ne po tekstu: funkcije i vidljive promenljive su nizovi indeksirani id-em,
+// a promenljiva unutrašnjeg bloka pamti onu koju zaklanja i vraća je kad se blok zatvori
+public final class Resolver {
+
+    public static final Ast.Type INT = new Ast.Type(Ast.Type.Kind.INT, null, 0);
+    public static final Ast.Type DOUBLE = new Ast.Type(Ast.Type.Kind.DOUBLE, null, 0);
+    public static final Ast.Type CHAR = new Ast.Type(Ast.Type.Kind.CHAR, null, 0);
+    public static final Ast.Type STRING = new Ast.Type(Ast.Type.Kind.STRING, null, 0);
+    public static final Ast.Type VOID = new Ast.Type(Ast.Type.Kind.VOID, null, 0);
+
+    private static final class Var {
+        final Ast.Type type;
+        final int slot;
+        final boolean global;
+        final int id;
+        // opseg u kome je deklarisana (indeks u scopes) i promenljiva istog imena koju zaklanja
+        final int level;
+        final Var shadowed;
+        Var(Ast.Type type, int slot, boolean global, int id, int level, Var shadowed) {
+            this.type = type; this.slot = slot; this.global = global; this.id = id; this.level = level; this.shadowed = shadowed;
+        }
+    }
+
+    private static final class Scope {
+        final List<Var> vars = new ArrayList<>();
+        // prvi slot bloka; posle zatvaranja se odatle nastavlja
+        final int start;
+        Scope(int start) { this.start = start; }
+    }
+
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private Ast.FuncDef[] functions = new Ast.FuncDef[64];
+    // vidljiva promenljiva za svaki id
+    private Var[] bound = new Var[64];
+    // tabela programa; imena bez id-a u njoj (battle, AST bez tabele) dobijaju id-eve posle nje iz extra
+    private SymbolTable symbols, extra;
+    private int base;
+    // prvi je globalni opseg
+    private final List<Scope> scopes = new ArrayList<>();
+    // sledeći slobodan slot i veličina tekućeg okvira
+    private int next, max;
+    // najveća dubina blokova i izraza u tekućoj funkciji (van funkcija za Program.depth)
+    private int deepest;
+    // null van funkcije
+    private Ast.FuncDef function;
+
+    public List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    public void resolve(Ast.Program p) {
+        diagnostics.clear();
+        Arrays.fill(functions, null);
+        Arrays.fill(bound, null);
+        scopes.clear();
+        symbols = p.symbols;
+        extra = new SymbolTable();
+        base = symbols != null ? symbols.size() : 0;
+        next = max = deepest = 0;
+        function = null;
+        open();
+
+        // funkcije i globalne promenljive se vide iz celog programa, nezavisno od redosleda
+        for (Ast.TopItem it : p.items) {
+            if (it instanceof Ast.FuncDef f) {
+                int id = id(f.name);
+                if (id >= functions.length) functions = Arrays.copyOf(functions, Math.max(id + 1, functions.length * 2));
+                if (functions[id] != null) {
+                    error(Diagnostic.Code.REDECLARED, f.name, "funkcija '" + f.name.lexeme + "' je već definisana");
+                } else {
+                    functions[id] = f;
+                }
+            } else if (it instanceof Ast.TopVarDecl v) {
+                declare(v.decl);
+            }
+        }
+
+        for (Ast.TopItem it : p.items) {
+            if (it instanceof Ast.FuncDef f) {
+                function(f);
+            } else if (it instanceof Ast.TopVarDecl v) {
+                dims(v.decl.dims);
+                init(v.decl);
+            } else if (it instanceof Ast.TopStmt s && s.stmt != null) {
+                stmts(List.of(s.stmt));
+            }
+        }
+
+        close();
+        p.frameSize = max;
+        p.depth = deepest;
+    }
+
+    private void function(Ast.FuncDef f) {
+        int savedNext = next, savedMax = max, savedDeepest = deepest;
+        function = f;
+        next = max = deepest = 0;
+        open();
+        for (Ast.Param p : f.params) declare(p.name, p.type);
+        stmts(f.body);
+        close();
+        f.frameSize = max;
+        f.depth = deepest;
+        function = null;
+        next = savedNext;
+        max = savedMax;
+        deepest = savedDeepest;
+    }
+
+    // OPSEZI
+
+    private int id(Token name) {
+        if (symbols != null && name.symbol >= 0 && name.symbol < base) return name.symbol;
+        return base + extra.intern(name.lexeme);
+    }
+
+    private Ast.FuncDef funcDef(Token name) {
+        int id = id(name);
+        return id < functions.length ? functions[id] : null;
+    }
+
+    private void open() {
+        scopes.add(new Scope(next));
+    }
+
+    private void close() {
+        Scope scope = scopes.remove(scopes.size() - 1);
+        List<Var> vars = scope.vars;
+        for (int i = vars.size() - 1; i >= 0; i--) bound[vars.get(i).id] = vars.get(i).shadowed;
+        next = scope.start;
+    }
+
+    private int declare(Token name, Ast.Type type) {
+        if (type.kind == Ast.Type.Kind.VOID) {
+            error(Diagnostic.Code.TYPE_MISMATCH, name, "promenljiva '" + name.lexeme + "' ne može biti tipa bezElixira");
+        }
+        int level = scopes.size() - 1;
+        int id = id(name);
+        if (id >= bound.length) bound = Arrays.copyOf(bound, Math.max(id + 1, bound.length * 2));
+        Var old = bound[id];
+        int slot = next++;
+        max = Math.max(max, next);
+        if (old != null && old.level == level) {
+            // važi prva deklaracija
+            error(Diagnostic.Code.REDECLARED, name, "'" + name.lexeme + "' je već deklarisana u ovom bloku");
+        } else {
+            Var v = new Var(type, slot, function == null, id, level, old);
+            bound[id] = v;
+            scopes.get(level).vars.add(v);
+        }
+        return slot;
+    }
+
+    private void declare(Ast.Stmt.VarDecl v) {
+        v.slots = new int[v.names.size()];
+        for (int i = 0; i < v.slots.length; i++) v.slots[i] = declare(v.names.get(i), v.type);
+    }
+
+    private Var lookup(Token name) {
+        int id = id(name);
+        Var v = id < bound.length ? bound[id] : null;
+        if (v != null) return v;
+        error(Diagnostic.Code.UNDECLARED, name, "nedeklarisana promenljiva '" + name.lexeme + "'");
+        return null;
+    }
+
+    private int depth(Var v) {
+        return v.global && function != null ? 1 : 0;
+    }
+
+    // NAREDBE
+    // ugnježđeni blokovi ne idu u rekurziju: lista naredbi čeka na eksplicitnom steku sa leader/cycle naredbom
+    // kojoj pripada i rednim brojem svog bloka u njoj (0 za leader ili telo petlje, pa elder blokovi, pa member)
+
+    private static final class Block {
+        final List<Ast.Stmt> stmts;
+        final Ast.Stmt owner;
+        final int part;
+        int next;
+        Block(List<Ast.Stmt> stmts, Ast.Stmt owner, int part) { this.stmts = stmts; this.owner = owner; this.part = part; }
+    }
+
+    private final List<Block> blocks = new ArrayList<>();
+
+    // naredbe redom u tekućem opsegu
+    private void stmts(List<Ast.Stmt> list) {
+        int base = blocks.size();
+        blocks.add(new Block(list, null, 0));
+        deepest = Math.max(deepest, blocks.size());
+        while (blocks.size() > base) {
+            Block b = blocks.get(blocks.size() - 1);
+            if (b.next < b.stmts.size()) {
+                stmt(b.stmts.get(b.next++));
+                continue;
+            }
+            blocks.remove(blocks.size() - 1);
+            if (b.owner != null) {
+                close();
+                resume(b.owner, b.part);
+            }
+        }
+    }
+
+    // prosta naredba se proverava odmah; leader/cycle otvara svoj prvi blok
+    private void stmt(Ast.Stmt s) {
+        if (s instanceof Ast.Stmt.VarDecl v) {
+            dims(v.dims);
+            // inicijalizator vidi spoljašnje ime, ne novu promenljivu
+            init(v);
+            declare(v);
+        } else if (s instanceof Ast.Stmt.Assign a) {
+            assign(a);
+        } else if (s instanceof Ast.Stmt.CallStmt c) {
+            expr(c.call);
+        } else if (s instanceof Ast.Stmt.Return r) {
+            ret(r);
+        } else if (s instanceof Ast.Stmt.BeginIf i) {
+            cond(i.ifArm.cond);
+            push(i.ifArm.block, i, 0);
+        } else if (s instanceof Ast.Stmt.BeginCycle c) {
+            // promenljiva iz init dela važi do kraja petlje
+            open();
+            if (c.init != null) stmt(c.init);
+            if (c.cond != null) cond(c.cond);
+            if (c.step != null) stmt(c.step);
+            push(c.body, c, 0);
+        }
+    }
+
+    private void push(List<Ast.Stmt> stmts, Ast.Stmt owner, int part) {
+        open();
+        blocks.add(new Block(stmts, owner, part));
+        deepest = Math.max(deepest, blocks.size());
+    }
+
+    // blok part naredbe owner je zatvoren: sledeći elder/member blok, ili kraj opsega petlje
+    private void resume(Ast.Stmt owner, int part) {
+        if (owner instanceof Ast.Stmt.BeginIf i) {
+            if (part < i.elderArms.size()) {
+                Ast.Stmt.BeginIf.Arm a = i.elderArms.get(part);
+                cond(a.cond);
+                push(a.block, i, part + 1);
+            } else if (part == i.elderArms.size() && i.elseBlock != null) {
+                push(i.elseBlock, i, part + 1);
+            }
+        } else {
+            close();
+        }
+    }
+
+    private void dims(List<Ast.Expr> dims) {
+        for (Ast.Expr d : dims) integral(d, "dimenzija niza");
+    }
+
+    private void init(Ast.Stmt.VarDecl s) {
+        if (s.init == null) return;
+        Ast.Type t = expr(s.init);
+        if (!assignable(s.type, t)) mismatch(s.init, "ne mogu da dodelim " + name(t) + " u " + name(s.type) + " '" + s.names.get(0).lexeme + "'");
+    }
+
+    private void assign(Ast.Stmt.Assign s) {
+        Ast.Type value = expr(s.left);
+        Ast.Stmt.LValue lv = s.lvalue;
+        if (s.declared != null) {
+            lv.slot = declare(lv.name, s.declared);
+            lv.depth = 0;
+            lv.type = s.declared;
+        } else {
+            Var v = lookup(lv.name);
+            for (Ast.Expr i : lv.indices) integral(i, "indeks");
+            lv.type = indexed(lv.name, v, lv.indices.size());
+            if (v != null) {
+                lv.depth = depth(v);
+                lv.slot = v.slot;
+            }
+        }
+        if (!assignable(lv.type, value)) {
+            error(Diagnostic.Code.TYPE_MISMATCH, lv.name, "ne mogu da dodelim " + name(value) + " u " + name(lv.type) + " '" + lv.name.lexeme + "'");
+        }
+    }
+
+    private void ret(Ast.Stmt.Return s) {
+        Ast.Type ret = function != null ? function.returnType : VOID;
+        Token at = function != null ? function.name : null;
+        if (s.expr == null) {
+            if (ret.kind != Ast.Type.Kind.VOID && at != null) {
+                error(Diagnostic.Code.TYPE_MISMATCH, at, "krajBorbe bez vrednosti u funkciji koja vraća " + name(ret));
+            }
+            return;
+        }
+        Ast.Type t = expr(s.expr);
+        if (ret.kind == Ast.Type.Kind.VOID) {
+            mismatch(s.expr, "krajBorbe sa vrednošću u funkciji tipa bezElixira");
+        } else if (!assignable(ret, t)) {
+            mismatch(s.expr, "krajBorbe vraća " + name(t) + ", a funkcija " + name(ret));
+        }
+    }
+
+    private void cond(Ast.Expr e) {
+        condition(e, expr(e));
+    }
+
+    private void condition(Ast.Expr e, Ast.Type t) {
+        if (t != null && !numeric(t)) mismatch(e, "uslov mora biti broj, a ne " + name(t));
+    }
+
+    private void integral(Ast.Expr e, String what) {
+        integral(e, expr(e), what);
+    }
+
+    private void integral(Ast.Expr e, Ast.Type t, String what) {
+        if (t != null && !integral(t)) mismatch(e, what + " mora biti ceo broj, a ne " + name(t));
+    }
+
+    // IZRAZI
+    // bez rekurzije: izraz i indeks njegovog sledećeg deteta čekaju na eksplicitnom steku;
+    // tip završenog deteta je u njegovom Expr.type, a provera koja zavisi samo od njega ide čim je dete završeno
+
+    private Ast.Expr[] exprs = new Ast.Expr[32];
+    private int[] kids = new int[32];
+    // promenljiva imena za INDEX, nađena pre indeksa
+    private Var[] vars = new Var[32];
+    private int exprTop;
+
+    private Ast.Type expr(Ast.Expr root) {
+        int base = exprTop;
+        enter(root);
+        while (true) {
+            int k = exprTop - 1;
+            Ast.Expr e = exprs[k];
+            Ast.Expr c = child(e, kids[k]);
+            if (c != null) {
+                kids[k]++;
+                enter(c);
+                continue;
+            }
+            Ast.Type t = leave(e, vars[k]);
+            e.type = t;
+            exprs[k] = null;
+            vars[k] = null;
+            exprTop = k;
+            if (k == base) return t;
+            done(exprs[k - 1], kids[k - 1] - 1, e, vars[k - 1]);
+        }
+    }
+
+    // čvor ide na stek; ime indeksa i funkcija poziva se traže pre dece, kao što su i pisani
+    private void enter(Ast.Expr e) {
+        if (exprTop == exprs.length) {
+            exprs = Arrays.copyOf(exprs, exprTop * 2);
+            kids = Arrays.copyOf(kids, exprTop * 2);
+            vars = Arrays.copyOf(vars, exprTop * 2);
+        }
+        Var v = null;
+        if (e instanceof Ast.Expr.Index x) {
+            v = lookup(x.name);
+        } else if (e instanceof Ast.Expr.Call c && !builtin(c)) {
+            Ast.FuncDef f = funcDef(c.callee);
+            c.target = f;
+            if (f == null) {
+                error(Diagnostic.Code.UNDECLARED, c.callee, "nedeklarisana funkcija '" + c.callee.lexeme + "'");
+            } else if (c.args.size() != f.params.size()) {
+                error(Diagnostic.Code.TYPE_MISMATCH, c.callee, "'" + f.name.lexeme + "' prima " + f.params.size() + " argumenata, a ne " + c.args.size());
+            }
+        }
+        exprs[exprTop] = e;
+        kids[exprTop] = 0;
+        vars[exprTop] = v;
+        exprTop++;
+        deepest = Math.max(deepest, blocks.size() + exprTop);
+    }
+
+    // i-to dete izraza, null posle poslednjeg
+    private static Ast.Expr child(Ast.Expr e, int i) {
+        if (e instanceof Ast.Expr.Binary b) return i == 0 ? b.left : i == 1 ? b.right : null;
+        if (e instanceof Ast.Expr.Grouping g) return i == 0 ? g.inner : null;
+        if (e instanceof Ast.Expr.Unary u) return i == 0 ? u.expr : null;
+        if (e instanceof Ast.Expr.Call c) return i < c.args.size() ? c.args.get(i) : null;
+        if (e instanceof Ast.Expr.Index x) return i < x.indices.size() ? x.indices.get(i) : null;
+        if (e instanceof Ast.Expr.Ternary t) return i == 0 ? t.condition : i == 1 ? t.thenExpr : i == 2 ? t.elseExpr : null;
+        return null;
+    }
+
+    // dete i izraza e je završeno
+    private void done(Ast.Expr e, int i, Ast.Expr child, Var v) {
+        Ast.Type t = child.type;
+        if (e instanceof Ast.Expr.Index) {
+            integral(child, t, "indeks");
+        } else if (e instanceof Ast.Expr.Ternary) {
+            if (i == 0) condition(child, t);
+        } else if (e instanceof Ast.Expr.Call c) {
+            if (builtin(c)) {
+                if (t != null && (t.rank != 0 || t.kind == Ast.Type.Kind.VOID)) {
+                    mismatch(child, c.callee.lexeme + " ne prima " + name(t));
+                } else if (c.callee.type == TokenType.UCITAJ_KARTICU && !(child instanceof Ast.Expr.Ident || child instanceof Ast.Expr.Index)) {
+                    // učitana vrednost mora negde da se upiše
+                    mismatch(child, "ucitajKarticu upisuje u promenljivu ili element niza, a ne u izraz");
+                }
+            } else if (c.target != null && i < c.target.params.size() && !assignable(c.target.params.get(i).type, t)) {
+                Ast.Param p = c.target.params.get(i);
+                mismatch(child, "argument '" + p.name.lexeme + "' je " + name(p.type) + ", a ne " + name(t));
+            }
+        }
+    }
+
+    // tip izraza čija su deca završena
+    private Ast.Type leave(Ast.Expr e, Var v) {
+        if (e instanceof Ast.Expr.LiteralInt) return INT;
+        if (e instanceof Ast.Expr.LiteralDouble) return DOUBLE;
+        if (e instanceof Ast.Expr.LiteralChar) return CHAR;
+        if (e instanceof Ast.Expr.LiteralString) return STRING;
+        if (e instanceof Ast.Expr.Ident i) {
+            Var iv = lookup(i.name);
+            if (iv == null) return null;
+            i.depth = depth(iv);
+            i.slot = iv.slot;
+            return iv.type;
+        }
+        if (e instanceof Ast.Expr.Index x) {
+            Ast.Type t = indexed(x.name, v, x.indices.size());
+            if (v != null) {
+                x.depth = depth(v);
+                x.slot = v.slot;
+            }
+            return t;
+        }
+        if (e instanceof Ast.Expr.Grouping g) return g.inner.type;
+        if (e instanceof Ast.Expr.Call c) return builtin(c) ? VOID : c.target != null ? c.target.returnType : null;
+        if (e instanceof Ast.Expr.Unary u) return unary(u);
+        if (e instanceof Ast.Expr.Binary b) return binary(b);
+        if (e instanceof Ast.Expr.Ternary t) return ternary(t);
+        throw new IllegalStateException("Nepoznat izraz: " + e.getClass().getSimpleName());
+    }
+
+    private static boolean builtin(Ast.Expr.Call c) {
+        return c.callee.type == TokenType.ISPISI_KARTICU || c.callee.type == TokenType.UCITAJ_KARTICU;
+    }
+
+    // tip elementa posle n indeksa; indeksi su već provereni i kada ime nije deklarisano
+    private Ast.Type indexed(Token name, Var v, int n) {
+        if (v == null) return null;
+        if (n == 0) return v.type;
+        if (n > v.type.rank) {
+            error(Diagnostic.Code.TYPE_MISMATCH, name, "'" + name.lexeme + "' je " + name(v.type) + " i nema " + n + " indeksa");
+            return null;
+        }
+        return new Ast.Type(v.type.kind, v.type.baseTypeTok, v.type.rank - n);
+    }
+
+    private Ast.Type unary(Ast.Expr.Unary e) {
+        Ast.Type t = e.expr.type;
+        if (t == null) return null;
+        if (!numeric(t)) {
+            error(Diagnostic.Code.TYPE_MISMATCH, e.op, "'" + e.op.lexeme + "' ne radi nad " + name(t));
+            return null;
+        }
+        if (e.op.type == TokenType.LOG_NOT) return INT;
+        return t.kind == Ast.Type.Kind.DOUBLE ? DOUBLE : INT;
+    }
+
+    private Ast.Type binary(Ast.Expr.Binary e) {
+        Ast.Type l = e.left.type;
+        Ast.Type r = e.right.type;
+        if (l == null || r == null) return null;
+        Ast.Type t = switch (e.op.type) {
+            case ADD -> {
+                if (scalar(l) && scalar(r) && (l.kind == Ast.Type.Kind.STRING || r.kind == Ast.Type.Kind.STRING)) yield STRING;
+                yield promote(l, r);
+            }
+            case SUB, MULTIPLY, DIVIDE -> promote(l, r);
+            case PERCENT -> integral(l) && integral(r) ? INT : null;
+            case LT, LE, GT, GE, LOG_AND, LOG_OR -> numeric(l) && numeric(r) ? INT : null;
+            case EQ, NEQ -> numeric(l) && numeric(r) || scalar(l) && l.kind == r.kind ? INT : null;
+            default -> null;
+        };
+        if (t == null) {
+            error(Diagnostic.Code.TYPE_MISMATCH, e.op, "'" + e.op.lexeme + "' ne radi nad " + name(l) + " i " + name(r));
+        }
+        return t;
+    }
+
+    private Ast.Type ternary(Ast.Expr.Ternary e) {
+        Ast.Type a = e.thenExpr.type;
+        Ast.Type b = e.elseExpr.type;
+        if (a == null || b == null) return null;
+        if (numeric(a) && numeric(b)) return promote(a, b);
+        if (a.kind == b.kind && a.rank == b.rank) return a;
+        mismatch(e.elseExpr, "grane ternarnog izraza su " + name(a) + " i " + name(b));
+        return null;
+    }
+
+    // TIPOVI
+
+    private static boolean scalar(Ast.Type t) {
+        return t.rank == 0 && t.kind != Ast.Type.Kind.VOID;
+    }
+
+    private static boolean integral(Ast.Type t) {
+        return t.rank == 0 && (t.kind == Ast.Type.Kind.INT || t.kind == Ast.Type.Kind.CHAR);
+    }
+
+    private static boolean numeric(Ast.Type t) {
+        return integral(t) || t.rank == 0 && t.kind == Ast.Type.Kind.DOUBLE;
+    }
+
+    // null ako nisu oba broja
+    private static Ast.Type promote(Ast.Type l, Ast.Type r) {
+        if (!numeric(l) || !numeric(r)) return null;
+        return l.kind == Ast.Type.Kind.DOUBLE || r.kind == Ast.Type.Kind.DOUBLE ? DOUBLE : INT;
+    }
+
+    // nepoznat tip (greška je već prijavljena) se može dodeliti svemu
+    public static boolean assignable(Ast.Type target, Ast.Type value) {
+        if (target == null || value == null) return true;
+        if (target.kind == Ast.Type.Kind.VOID || value.kind == Ast.Type.Kind.VOID) return false;
+        if (target.rank != value.rank) return false;
+        if (target.kind == value.kind) return true;
+        if (target.rank != 0) return false;
+        if (target.kind == Ast.Type.Kind.DOUBLE) return integral(value);
+        return integral(target) && integral(value);
+    }
+
+    public static String name(Ast.Type t) {
+        if (t == null) return "?";
+        String base = switch (t.kind) {
+            case INT -> "brojElixira";
+            case DOUBLE -> "doubleElixir";
+            case CHAR -> "slovoKartice";
+            case STRING -> "imeKartice";
+            case VOID -> "bezElixira";
+        };
+        return base + "[]".repeat(t.rank);
+    }
+
+    // GREŠKE
+
+    private void mismatch(Ast.Expr e, String msg) {
+        error(Diagnostic.Code.TYPE_MISMATCH, token(e), msg);
+    }
+
+    private void error(Diagnostic.Code code, Token t, String msg) {
+        if (t == null) diagnostics.add(new Diagnostic(code, msg, 0, 0, -1, 0));
+        else diagnostics.add(new Diagnostic(code, msg, t.line, t.colStart, -1, t.colEnd - t.colStart + 1));
+    }
+
+    // prvi token izraza koji nosi poziciju
+    private static Token token(Ast.Expr e) {
+        while (true) {
+            if (e instanceof Ast.Expr.LiteralInt l) return l.token;
+            if (e instanceof Ast.Expr.LiteralDouble l) return l.token;
+            if (e instanceof Ast.Expr.LiteralChar l) return l.token;
+            if (e instanceof Ast.Expr.LiteralString l) return l.token;
+            if (e instanceof Ast.Expr.Ident i) return i.name;
+            if (e instanceof Ast.Expr.Index i) return i.name;
+            if (e instanceof Ast.Expr.Call c) return c.callee;
+            if (e instanceof Ast.Expr.Unary u) return u.op;
+            if (e instanceof Ast.Expr.Grouping g) e = g.inner;
+            else if (e instanceof Ast.Expr.Binary b) e = b.left;
+            else if (e instanceof Ast.Expr.Ternary t) e = t.condition;
+            else return null;
+        }
+    }
+}